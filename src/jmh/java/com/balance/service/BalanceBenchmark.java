@@ -0,0 +1,84 @@
+package com.balance.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BalanceService.balance 벤치마크.
+ * 모드 / 인원 수 / 조건(고정·분리·라인 고정) 밀도 조합별로 한 번의 balance 호출 비용을 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceBenchmark {
+
+    private static final String[] LANES = { "TOP", "JUNGLE", "MIDDLE", "BOTTOM", "UTILITY" };
+
+    @Param({ "balance", "random", "pure_random" })
+    public String mode;
+
+    @Param({ "6", "8", "10", "12", "16" })
+    public int players;
+
+    /** none: 조건 없음, light: 고정 1쌍·분리 1쌍·라인 고정 1, heavy: 고정 2그룹·분리 2쌍·라인 고정 3 */
+    @Param({ "none", "light", "heavy" })
+    public String constraints;
+
+    private BalanceService service;
+    private List<Map<String, Object>> lobby;
+    private List<List<Integer>> fixedGroups;
+    private List<List<Integer>> separateGroups;
+    private Map<Integer, String> laneLocks;
+    private Map<String, List<String>> laneHistory;
+
+    @Setup
+    public void setup() {
+        service = new BalanceService();
+        Random rnd = new Random(42);
+
+        lobby       = new ArrayList<>();
+        laneHistory = new HashMap<>();
+        for (int i = 0; i < players; i++) {
+            String name = "Player" + i + "#KR1";
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("displayName",   name);
+            p.put("gameName",      "Player" + i);
+            p.put("score",         800 + rnd.nextInt(2000));
+            p.put("primaryLane",   LANES[rnd.nextInt(LANES.length)]);
+            p.put("secondaryLane", LANES[rnd.nextInt(LANES.length)]);
+            lobby.add(p);
+            laneHistory.put(name, List.of(LANES[rnd.nextInt(LANES.length)], LANES[rnd.nextInt(LANES.length)]));
+        }
+
+        fixedGroups    = new ArrayList<>();
+        separateGroups = new ArrayList<>();
+        laneLocks      = new HashMap<>();
+        switch (constraints) {
+            case "light" -> {
+                fixedGroups.add(List.of(0, 1));
+                separateGroups.add(List.of(2, 3));
+                laneLocks.put(4, "MIDDLE");
+            }
+            case "heavy" -> {
+                fixedGroups.add(List.of(0, 1));
+                fixedGroups.add(List.of(2, 3, 4));
+                separateGroups.add(List.of(0, 2));
+                separateGroups.add(List.of(5, 6));
+                laneLocks.put(0, "TOP");
+                laneLocks.put(2, "JUNGLE");
+                laneLocks.put(5, "UTILITY");
+            }
+            default -> { }
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> balance() {
+        return service.balance(lobby, mode, fixedGroups, separateGroups, laneLocks, laneHistory);
+    }
+}
@@ -0,0 +1,121 @@
+package com.balance.service;
+
+import com.balance.model.PlayerProfile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RiotApiService.getPlayerDataAsync 의 매치 JSON 집계 벤치마크.
+ * 네트워크 없이 src/jmh/resources/fixtures 의 기록된 응답(랭크 20판 + 사설 20판)으로 돌린다.
+ * parseAndBuild 는 응답 문자열 파싱(매치는 MatchDigest 스트리밍 추출)까지, buildOnly 는 추출된 값의 집계만 잰다.
+ * parseMatchTree / parseMatchDigest 는 매치 문서 20개를 JsonNode 트리로 읽는 것과 스트리밍으로 뽑는 것을 비교한다.
+ * readStoredJson / readStoredBinary 는 summoners 테이블에 저장된 스냅샷을 다시 읽는 비용을 형식별로 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerDataBenchmark {
+
+    private static final int MATCH_COUNT = 20;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private RiotApiService service;
+
+    private String summonerJson, leagueJson, masteryJson, puuid;
+    private List<String> matchIds, customMatchIds;
+    private Map<String, String> matchJson, customJson;
+    private RiotApiService.PlayerPayload parsed;
+    private String storedJson;
+    private byte[] storedBinary;
+
+    @Setup
+    public void setup() throws Exception {
+        service = new RiotApiService();
+
+        summonerJson = fixture("summoner.json");
+        leagueJson   = fixture("league-entries.json");
+        masteryJson  = fixture("mastery.json");
+        puuid        = objectMapper.readTree(summonerJson).path("puuid").asText();
+
+        matchIds       = new ArrayList<>();
+        customMatchIds = new ArrayList<>();
+        matchJson      = new HashMap<>();
+        customJson     = new HashMap<>();
+        for (int i = 0; i < MATCH_COUNT; i++) {
+            String mid = "KR_7200000" + String.format("%03d", i);
+            matchIds.add(mid);
+            matchJson.put(mid, fixture("match-ranked-" + (i % 4) + ".json"));
+            String cid = "KR_7100000" + String.format("%03d", i);
+            customMatchIds.add(cid);
+            customJson.put(cid, fixture("match-custom-" + (i % 2) + ".json"));
+        }
+        parsed = parse();
+
+        PlayerProfile profile = service.buildPlayerData(parsed);
+        storedJson   = objectMapper.writeValueAsString(profile);
+        storedBinary = ProfileSnapshotCodec.encode(profile, true);
+    }
+
+    @Benchmark
+    public PlayerProfile parseAndBuild() throws Exception {
+        return service.buildPlayerData(parse());
+    }
+
+    @Benchmark
+    public PlayerProfile buildOnly() {
+        return service.buildPlayerData(parsed);
+    }
+
+    @Benchmark
+    public int parseMatchTree() throws Exception {
+        int n = 0;
+        for (String json : matchJson.values()) n += objectMapper.readTree(json).path("info").path("participants").size();
+        return n;
+    }
+
+    @Benchmark
+    public int parseMatchDigest() throws Exception {
+        int n = 0;
+        for (String json : matchJson.values()) n += MatchDigest.read(json).participants().size();
+        return n;
+    }
+
+    @Benchmark
+    public PlayerProfile readStoredJson() throws Exception {
+        return objectMapper.readValue(storedJson, PlayerProfile.class);
+    }
+
+    @Benchmark
+    public PlayerProfile readStoredBinary() throws Exception {
+        return ProfileSnapshotCodec.decode(storedBinary);
+    }
+
+    private RiotApiService.PlayerPayload parse() throws Exception {
+        Map<String, MatchDigest> matches = new HashMap<>();
+        for (Map.Entry<String, String> e : matchJson.entrySet()) {
+            matches.put(e.getKey(), MatchDigest.read(e.getValue()));
+        }
+        Map<String, MatchDigest> customs = new HashMap<>();
+        for (Map.Entry<String, String> e : customJson.entrySet()) {
+            customs.put(e.getKey(), MatchDigest.read(e.getValue()));
+        }
+        return new RiotApiService.PlayerPayload("Fixture", "KR1", puuid,
+            objectMapper.readTree(summonerJson), objectMapper.readTree(leagueJson),
+            matchIds, matches, customMatchIds, customs, objectMapper.readTree(masteryJson));
+    }
+
+    private static String fixture(String name) throws Exception {
+        try (InputStream in = PlayerDataBenchmark.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IllegalStateException("fixture 없음: " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
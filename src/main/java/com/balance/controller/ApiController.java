@@ -1,22 +1,30 @@
 package com.balance.controller;
 
+import com.balance.model.PlayerProfile;
 import com.balance.service.BalanceService;
 import com.balance.service.DiscordService;
 import com.balance.service.RiotApiService;
 import com.balance.service.LaneHistoryService;
 import com.balance.service.SummonerCacheService;
+import com.balance.service.SummonerRefreshService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class ApiController {
@@ -26,10 +34,15 @@ public class ApiController {
     @Autowired private DiscordService discordService;
     @Autowired private SummonerCacheService summonerCacheService;
     @Autowired private LaneHistoryService laneHistoryService;
+    @Autowired private SummonerRefreshService summonerRefreshService;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     // ── GET /api/player/**  (?refresh=true 로 강제 재조회)
+    //    Riot 조회는 비동기로 진행되고, 기다리는 동안 요청 스레드를 반납한다
     @GetMapping("/api/player/**")
-    public ResponseEntity<Map<String, Object>> getPlayer(HttpServletRequest request) {
+    public CompletableFuture<ResponseEntity<?>> getPlayer(HttpServletRequest request) {
         try {
             String contextPath = request.getContextPath();
             String uri     = request.getRequestURI().substring(contextPath.length());
@@ -37,45 +50,80 @@ public class ApiController {
             String riotId  = URLDecoder.decode(encoded, StandardCharsets.UTF_8);
 
             if (!riotId.contains("#")) {
-                return ResponseEntity.badRequest()
-                    .body(Map.of("error", "형식: 닉네임#태그 (예: Hide on bush#KR1)"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", "형식: 닉네임#태그 (예: Hide on bush#KR1)")));
             }
 
             boolean forceRefresh = "true".equals(request.getParameter("refresh"));
-
-            // 강제 새로고침이 아니면 캐시 먼저 확인
-            if (!forceRefresh) {
-                Optional<Map<String, Object>> cached = summonerCacheService.findByDisplayName(riotId);
-                if (cached.isPresent()) {
-                    return ResponseEntity.ok(cached.get());
-                }
-            }
-
-            // Riot API에서 실제 조회
             int hashIdx     = riotId.lastIndexOf('#');
             String gameName = riotId.substring(0, hashIdx);
             String tagLine  = riotId.substring(hashIdx + 1);
 
-            Map<String, Object> data = riotApiService.getPlayerData(gameName, tagLine);
-
-            // DB에 저장 (upsert)
-            summonerCacheService.save(riotId, gameName, tagLine, data);
-
-            return ResponseEntity.ok(data);
+            // 강제 새로고침이 아니면 캐시 먼저 확인 (새로고침이면 이전 스냅샷으로 새 판만 받는다)
+            // TTL 이 지난 스냅샷은 바로 돌려주고 백그라운드에서 새로고침한다
+            Optional<PlayerProfile> cached = summonerCacheService.findByDisplayName(riotId);
+            if (!forceRefresh && cached.isPresent()) {
+                if (Boolean.TRUE.equals(cached.get().stale())) {
+                    summonerRefreshService.revalidate(riotId, gameName, tagLine);
+                }
+                return CompletableFuture.completedFuture(ResponseEntity.ok(cached.get()));
+            }
 
-        } catch (RiotApiService.NotFoundException e) {
-            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+            // Riot API에서 실제 조회 후 DB에 저장 (upsert) — 같은 Riot ID 를 이미 받고 있으면 그 결과를 같이 쓴다
+            return summonerRefreshService.lookup(riotId, gameName, tagLine, cached.orElse(null))
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(e -> playerError(RiotApiService.rootCause(e)));
         } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", "서버 오류: " + e.getMessage()));
+            return CompletableFuture.completedFuture(playerError(e));
         }
     }
 
+    private static ResponseEntity<?> playerError(Throwable e) {
+        if (e instanceof RiotApiService.NotFoundException)
+            return ResponseEntity.status(404).body(Map.of("error", e.getMessage()));
+        return ResponseEntity.status(500).body(Map.of("error", "서버 오류: " + e.getMessage()));
+    }
+
     // ── GET /api/summoners  (저장된 소환사 목록)
     @GetMapping("/api/summoners")
     public ResponseEntity<List<Map<String, Object>>> getSummoners() {
         return ResponseEntity.ok(summonerCacheService.listSummaries());
     }
 
+    // ── POST /api/summoners/refresh  (저장된 소환사 전체 새로고침, NDJSON 스트리밍)
+    //    첫 줄 { total }, 이후 끝나는 순서대로 { displayName, ok, data | error }, 마지막 줄 { done, total, failed }
+    @PostMapping("/api/summoners/refresh")
+    public ResponseEntity<ResponseBodyEmitter> refreshSummoners() {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(10 * 60 * 1000L);
+        SummonerRefreshService.BulkRefresh job;
+        synchronized (emitter) {   // 결과 줄이 total 줄보다 먼저 나가지 않도록
+            job = summonerRefreshService.refreshAll(line -> sendLine(emitter, line));
+            sendLine(emitter, Map.of("total", job.total()));
+        }
+        job.done().whenComplete((v, e) -> {
+            Map<String, Object> last = new LinkedHashMap<>();
+            last.put("done",   true);
+            last.put("total",  job.total());
+            last.put("failed", job.failed().get());
+            sendLine(emitter, last);
+            emitter.complete();
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+    }
+
+    /** 한 줄씩 전송 (여러 작업 스레드에서 호출되므로 emitter 단위로 직렬화) */
+    private void sendLine(ResponseBodyEmitter emitter, Map<String, Object> line) {
+        synchronized (emitter) {
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(line);
+                emitter.send(json, NDJSON);
+                emitter.send(new byte[] { '\n' }, NDJSON);
+            } catch (IOException | IllegalStateException e) {
+                // 클라이언트가 연결을 끊은 경우 — 새로고침 자체는 계속 진행해 DB 에 반영
+            }
+        }
+    }
+
     // ── DELETE /api/summoner/**  (DB에서 삭제)
     @DeleteMapping("/api/summoner/**")
     public ResponseEntity<Map<String, Object>> deleteSummoner(HttpServletRequest request) {
@@ -102,23 +150,11 @@ public class ApiController {
             if (players == null || players.size() < 2) {
                 return ResponseEntity.badRequest().body(Map.of("error", "최소 2명 필요"));
             }
-            List<List<Integer>> fixedGroups = body.containsKey("fixedGroups")
-                ? ((List<List<?>>) body.get("fixedGroups")).stream()
-                    .map(g -> g.stream().map(v -> ((Number) v).intValue()).collect(java.util.stream.Collectors.toList()))
-                    .collect(java.util.stream.Collectors.toList())
-                : List.of();
-            List<List<Integer>> separateGroups = body.containsKey("separateGroups")
-                ? ((List<List<?>>) body.get("separateGroups")).stream()
-                    .map(g -> g.stream().map(v -> ((Number) v).intValue()).collect(java.util.stream.Collectors.toList()))
-                    .collect(java.util.stream.Collectors.toList())
-                : List.of();
-            Map<Integer, String> laneLocks = new HashMap<>();
-            if (body.containsKey("laneLocks")) {
-                Map<?, ?> raw = (Map<?, ?>) body.get("laneLocks");
-                for (Map.Entry<?, ?> e : raw.entrySet()) {
-                    laneLocks.put(Integer.parseInt(e.getKey().toString()), e.getValue().toString());
-                }
-            }
+            List<List<Integer>> fixedGroups    = parseGroups(body, "fixedGroups");
+            List<List<Integer>> separateGroups = parseGroups(body, "separateGroups");
+            Map<Integer, String> laneLocks = parseLaneLocks(body);
+            // 사용자 지정 라인 목록 (없으면 TOP/JUNGLE/MIDDLE/BOTTOM/UTILITY)
+            List<String> lanes = parseLanes(body);
             // pure_random 모드는 DB 라인 이력 조회 불필요
             Map<String, List<String>> laneHistory = Map.of();
             if (!"pure_random".equals(mode)) {
@@ -133,12 +169,73 @@ public class ApiController {
                 laneHistory = laneHistoryService.getRecentHistory(displayNames, avoidCount);
             }
 
-            return ResponseEntity.ok(balanceService.balance(players, mode, fixedGroups, separateGroups, laneLocks, laneHistory));
+            return ResponseEntity.ok(balanceService.balance(players, mode, fixedGroups, separateGroups, laneLocks, laneHistory, lanes));
+        } catch (IllegalArgumentException e) {
+            // 서로 모순되는 고정/분리 조건
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
 
+    // ── POST /api/schedule  (세션 여러 판 일정 한 번에 짜기)
+    //    body: { players, rounds(기본 6), fixedGroups, separateGroups, laneLocks, lanes, seed }
+    //    일정은 저장하지 않는다 — 판을 치르고 /api/discord 로 이력이 쌓인 뒤 다시 부르면 남은 판을 새로 짠다
+    @PostMapping("/api/schedule")
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<Map<String, Object>> schedule(@RequestBody Map<String, Object> body) {
+        try {
+            List<Map<String, Object>> players =
+                (List<Map<String, Object>>) body.get("players");
+            if (players == null || players.size() < 2) {
+                return ResponseEntity.badRequest().body(Map.of("error", "최소 2명 필요"));
+            }
+            int rounds = body.containsKey("rounds") ? ((Number) body.get("rounds")).intValue() : 6;
+            Long seed  = body.get("seed") instanceof Number ? ((Number) body.get("seed")).longValue() : null;
+
+            List<String> displayNames = players.stream()
+                .map(p -> (String) p.get("displayName"))
+                .filter(Objects::nonNull)
+                .collect(java.util.stream.Collectors.toList());
+            LaneHistoryService.SessionHistory history = laneHistoryService.getSessionHistory(displayNames);
+
+            return ResponseEntity.ok(balanceService.schedule(players, rounds,
+                parseGroups(body, "fixedGroups"), parseGroups(body, "separateGroups"), parseLaneLocks(body),
+                history.lanes(), history.teammates(), parseLanes(body), seed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /** [[0,1],[2,3]] 형태의 플레이어 인덱스 그룹 목록 (없으면 빈 목록) */
+    @SuppressWarnings("unchecked")
+    private List<List<Integer>> parseGroups(Map<String, Object> body, String key) {
+        if (!body.containsKey(key)) return List.of();
+        return ((List<List<?>>) body.get(key)).stream()
+            .map(g -> g.stream().map(v -> ((Number) v).intValue()).collect(java.util.stream.Collectors.toList()))
+            .collect(java.util.stream.Collectors.toList());
+    }
+
+    /** { "플레이어 인덱스": "라인" } (없으면 빈 맵) */
+    private Map<Integer, String> parseLaneLocks(Map<String, Object> body) {
+        Map<Integer, String> laneLocks = new HashMap<>();
+        if (body.containsKey("laneLocks")) {
+            Map<?, ?> raw = (Map<?, ?>) body.get("laneLocks");
+            for (Map.Entry<?, ?> e : raw.entrySet()) {
+                laneLocks.put(Integer.parseInt(e.getKey().toString()), e.getValue().toString());
+            }
+        }
+        return laneLocks;
+    }
+
+    /** 사용자 지정 라인 목록 (없으면 null → TOP/JUNGLE/MIDDLE/BOTTOM/UTILITY) */
+    private List<String> parseLanes(Map<String, Object> body) {
+        if (!body.containsKey("lanes")) return null;
+        return ((List<?>) body.get("lanes")).stream().map(Object::toString).collect(java.util.stream.Collectors.toList());
+    }
+
     // ── POST /api/discord  (디코 전송 + 라인 이력 자동 저장)
     @PostMapping("/api/discord")
     @SuppressWarnings("unchecked")
@@ -150,24 +247,25 @@ public class ApiController {
             String mode = (String) body.getOrDefault("mode", "balance");
             if (success && !"pure_random".equals(mode)) {
                 Map<String, String> assignments = new HashMap<>();
+                Map<String, Integer> teams = new HashMap<>();
                 List<Map<String, Object>> team1 = (List<Map<String, Object>>) body.get("team1");
                 List<Map<String, Object>> team2 = (List<Map<String, Object>>) body.get("team2");
                 if (team1 != null) {
                     for (Map<String, Object> p : team1) {
                         String dn = (String) p.get("displayName");
                         String lane = (String) p.get("assignedLane");
-                        if (dn != null && lane != null) assignments.put(dn, lane);
+                        if (dn != null && lane != null) { assignments.put(dn, lane); teams.put(dn, 1); }
                     }
                 }
                 if (team2 != null) {
                     for (Map<String, Object> p : team2) {
                         String dn = (String) p.get("displayName");
                         String lane = (String) p.get("assignedLane");
-                        if (dn != null && lane != null) assignments.put(dn, lane);
+                        if (dn != null && lane != null) { assignments.put(dn, lane); teams.put(dn, 2); }
                     }
                 }
                 if (!assignments.isEmpty()) {
-                    laneHistoryService.saveGameResult(assignments);
+                    laneHistoryService.saveGameResult(assignments, teams);
                 }
             }
 
@@ -180,14 +278,12 @@ public class ApiController {
 
     // ── GET /api/timeline/{matchId}/{pid}
     @GetMapping("/api/timeline/{matchId}/{pid}")
-    public ResponseEntity<Map<String, Object>> getTimeline(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getTimeline(
             @PathVariable String matchId,
             @PathVariable int   pid) {
-        try {
-            List<Map<String, Object>> events = riotApiService.getTimeline(matchId, pid);
-            return ResponseEntity.ok(Map.of("events", events));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
-        }
+        return riotApiService.getTimelineAsync(matchId, pid)
+            .thenApply(events -> ResponseEntity.ok(Map.<String, Object>of("events", events)))
+            .exceptionally(e -> ResponseEntity.status(500)
+                .body(Map.of("error", String.valueOf(RiotApiService.rootCause(e).getMessage()))));
     }
 }
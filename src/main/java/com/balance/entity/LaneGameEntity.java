@@ -0,0 +1,29 @@
+package com.balance.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 저장된 한 판. id 가 곧 lane_history.game_number 이며, AUTO_INCREMENT 로 원자적으로 발급된다.
+ */
+@Entity
+@Table(name = "lane_games")
+public class LaneGameEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "player_count", nullable = false)
+    private Integer playerCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public Long getId()                  { return id; }
+    public Integer getPlayerCount()      { return playerCount; }
+    public LocalDateTime getCreatedAt()  { return createdAt; }
+
+    public void setPlayerCount(Integer v)      { this.playerCount = v; }
+    public void setCreatedAt(LocalDateTime v)  { this.createdAt = v; }
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "lane_history")
+@Table(name = "lane_history",
+       indexes = @Index(name = "idx_lane_history_name_created_game",
+                        columnList = "display_name, created_at, game_number"))
 public class LaneHistoryEntity {
 
     @Id
@@ -20,6 +22,10 @@ public class LaneHistoryEntity {
     @Column(name = "game_number", nullable = false)
     private Integer gameNumber;
 
+    /** 1 = 팀1, 2 = 팀2 (팀 정보 저장 이전 이력은 null) */
+    @Column(name = "team_no")
+    private Integer teamNo;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
@@ -27,10 +33,12 @@ public class LaneHistoryEntity {
     public String getDisplayName()       { return displayName; }
     public String getAssignedLane()      { return assignedLane; }
     public Integer getGameNumber()       { return gameNumber; }
+    public Integer getTeamNo()           { return teamNo; }
     public LocalDateTime getCreatedAt()  { return createdAt; }
 
     public void setDisplayName(String v)       { this.displayName = v; }
     public void setAssignedLane(String v)      { this.assignedLane = v; }
     public void setGameNumber(Integer v)       { this.gameNumber = v; }
+    public void setTeamNo(Integer v)           { this.teamNo = v; }
     public void setCreatedAt(LocalDateTime v)  { this.createdAt = v; }
 }
@@ -0,0 +1,50 @@
+package com.balance.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 종료된 게임의 매치/타임라인 원문 (deflate 압축 JSON).
+ * 게임이 끝난 뒤에는 내용이 바뀌지 않으므로 matchId + kind 로만 찾는다.
+ */
+@Entity
+@Table(name = "match_documents",
+       uniqueConstraints = @UniqueConstraint(name = "uk_match_documents_match_kind", columnNames = {"match_id", "kind"}),
+       indexes = @Index(name = "idx_match_documents_created_at", columnList = "created_at"))
+public class MatchDocumentEntity {
+
+    public static final String KIND_MATCH    = "MATCH";
+    public static final String KIND_TIMELINE = "TIMELINE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "match_id", nullable = false, length = 30)
+    private String matchId;
+
+    @Column(name = "kind", nullable = false, length = 10)
+    private String kind;
+
+    @Column(name = "body", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] body;
+
+    @Column(name = "raw_size", nullable = false)
+    private Integer rawSize;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public Long getId()                  { return id; }
+    public String getMatchId()           { return matchId; }
+    public String getKind()              { return kind; }
+    public byte[] getBody()              { return body; }
+    public Integer getRawSize()          { return rawSize; }
+    public LocalDateTime getCreatedAt()  { return createdAt; }
+
+    public void setMatchId(String v)           { this.matchId = v; }
+    public void setKind(String v)              { this.kind = v; }
+    public void setBody(byte[] v)              { this.body = v; }
+    public void setRawSize(Integer v)          { this.rawSize = v; }
+    public void setCreatedAt(LocalDateTime v)  { this.createdAt = v; }
+}
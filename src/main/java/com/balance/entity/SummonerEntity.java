@@ -20,22 +20,56 @@ public class SummonerEntity {
     @Column(name = "tag_line", nullable = false, length = 20)
     private String tagLine;
 
+    // ── 스냅샷 본문: summoner.storage.format 에 따라 둘 중 하나만 채운다 ──────
+    // data_json 은 기존 NOT NULL 컬럼이라 바이너리로 저장한 행은 빈 문자열을 넣는다
     @Column(name = "data_json", nullable = false, columnDefinition = "MEDIUMTEXT")
     private String dataJson;
 
+    /** ProfileSnapshotCodec 인코딩 (null 이면 data_json 을 읽는다) */
+    @Column(name = "data_blob", columnDefinition = "MEDIUMBLOB")
+    private byte[] dataBlob;
+
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // ── 목록 화면용 요약 (dataJson 에서 추출, 목록 조회 시 data_json 을 읽지 않기 위함)
+    @Column(name = "icon_url", length = 255)
+    private String iconUrl;
+
+    @Column(name = "score")
+    private Integer score;
+
+    @Column(name = "tier", length = 20)
+    private String tier;
+
+    @Column(name = "tier_rank", length = 5)
+    private String tierRank;
+
+    @Column(name = "league_points")
+    private Integer leaguePoints;
+
     public Long getId()               { return id; }
     public String getDisplayName()    { return displayName; }
     public String getGameName()       { return gameName; }
     public String getTagLine()        { return tagLine; }
     public String getDataJson()       { return dataJson; }
+    public byte[] getDataBlob()       { return dataBlob; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public String getIconUrl()        { return iconUrl; }
+    public Integer getScore()         { return score; }
+    public String getTier()           { return tier; }
+    public String getTierRank()       { return tierRank; }
+    public Integer getLeaguePoints()  { return leaguePoints; }
 
     public void setDisplayName(String v)    { this.displayName = v; }
     public void setGameName(String v)       { this.gameName = v; }
     public void setTagLine(String v)        { this.tagLine = v; }
     public void setDataJson(String v)       { this.dataJson = v; }
+    public void setDataBlob(byte[] v)       { this.dataBlob = v; }
     public void setUpdatedAt(LocalDateTime v) { this.updatedAt = v; }
+    public void setIconUrl(String v)        { this.iconUrl = v; }
+    public void setScore(Integer v)         { this.score = v; }
+    public void setTier(String v)           { this.tier = v; }
+    public void setTierRank(String v)       { this.tierRank = v; }
+    public void setLeaguePoints(Integer v)  { this.leaguePoints = v; }
 }
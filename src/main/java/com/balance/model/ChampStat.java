@@ -0,0 +1,6 @@
+package com.balance.model;
+
+/**
+ * 챔피언별 집계 (시즌 모스트 / 사설 모스트). winRate 는 정수 %.
+ */
+public record ChampStat(String name, int games, int winRate, double kda, String imgUrl) {}
@@ -0,0 +1,6 @@
+package com.balance.model;
+
+/**
+ * 라인별 전적 (w = 승, l = 패, n = 판수).
+ */
+public record LaneStat(int w, int l, int n) {}
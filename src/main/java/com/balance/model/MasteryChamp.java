@@ -0,0 +1,6 @@
+package com.balance.model;
+
+/**
+ * 숙련도 상위 챔피언.
+ */
+public record MasteryChamp(String name, String imgUrl, int level, int points) {}
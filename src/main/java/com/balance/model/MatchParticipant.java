@@ -0,0 +1,7 @@
+package com.balance.model;
+
+/**
+ * 사설 게임 참가자 한 명 (team = Riot teamId, 100/200).
+ */
+public record MatchParticipant(String gameName, String tagLine, String champion, int team,
+                               int kills, int deaths, int assists, boolean win) {}
@@ -0,0 +1,19 @@
+package com.balance.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * 최근 전적 한 판. participants 는 사설 게임에만 있다 (랭크/일반은 직렬화 시 생략).
+ */
+public record MatchSummary(String matchId, int participantId, String champion, boolean win,
+                           int kills, int deaths, int assists, double kda,
+                           String lane, String duration, int durationSec, List<Integer> items,
+                           @JsonInclude(JsonInclude.Include.NON_NULL) List<MatchParticipant> participants) {
+
+    public MatchSummary {
+        items        = items == null ? List.of() : List.copyOf(items);
+        participants = participants == null ? null : List.copyOf(participants);
+    }
+}
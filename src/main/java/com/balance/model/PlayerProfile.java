@@ -0,0 +1,68 @@
+package com.balance.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 소환사 한 명의 조회 결과 스냅샷 (GET /api/player/** 응답, summoners.data_json 저장 형태).
+ * 모든 필드가 읽기 전용이라 L1 캐시에서 그대로 공유한다.
+ * fromCache / cachedAt 은 캐시에서 꺼낸 응답에만, stale 은 그 중 TTL 이 지나 백그라운드 새로고침을 건 응답에만 붙는다.
+ * puuid 와 recentMatches / customMatches 는 새로고침 때 같은 계정인지 확인하고(백그라운드 재검증은 계정 조회 생략) 이미 집계한 매치 재처리를 건너뛰는 데 쓴다
+ * (puuid 를 저장하기 전의 스냅샷은 null).
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record PlayerProfile(
+    String displayName,
+    String gameName,
+    String tagLine,
+    @JsonInclude(JsonInclude.Include.NON_NULL) String puuid,
+    int level,
+    String iconUrl,
+    RankEntry highestRank,
+    RankEntry solo,
+    RankEntry flex,
+    String primaryLane,
+    String secondaryLane,
+    String primaryLaneKo,
+    int primaryLaneWr,
+    Map<String, LaneStat> laneStats,
+    Map<String, Integer> laneCounts,
+    int score,
+    List<MasteryChamp> topChamps,
+    List<ChampStat> seasonMost,
+    List<MatchSummary> recentMatches,
+    int totalMatches,
+    List<MatchSummary> customMatches,
+    List<ChampStat> customMost,
+    int customWins,
+    int customLosses,
+    int customTotal,
+    int customScore,
+    @JsonInclude(JsonInclude.Include.NON_NULL) Boolean fromCache,
+    @JsonInclude(JsonInclude.Include.NON_NULL) String cachedAt,
+    @JsonInclude(JsonInclude.Include.NON_NULL) Boolean stale) {
+
+    public PlayerProfile {
+        // 맵은 원래 순서를 유지해야 JSON 출력이 바뀌지 않으므로 Map.copyOf 대신 LinkedHashMap 으로 감싼다
+        laneStats     = laneStats  == null ? Map.of() : Collections.unmodifiableMap(new LinkedHashMap<>(laneStats));
+        laneCounts    = laneCounts == null ? Map.of() : Collections.unmodifiableMap(new LinkedHashMap<>(laneCounts));
+        topChamps     = topChamps     == null ? List.of() : List.copyOf(topChamps);
+        seasonMost    = seasonMost    == null ? List.of() : List.copyOf(seasonMost);
+        recentMatches = recentMatches == null ? List.of() : List.copyOf(recentMatches);
+        customMatches = customMatches == null ? List.of() : List.copyOf(customMatches);
+        customMost    = customMost    == null ? List.of() : List.copyOf(customMost);
+    }
+
+    /** 캐시에서 꺼낸 응답 표시 (중첩 값은 그대로 공유) */
+    public PlayerProfile withCacheInfo(String cachedAt, boolean stale) {
+        return new PlayerProfile(displayName, gameName, tagLine, puuid, level, iconUrl, highestRank, solo, flex,
+            primaryLane, secondaryLane, primaryLaneKo, primaryLaneWr, laneStats, laneCounts, score,
+            topChamps, seasonMost, recentMatches, totalMatches, customMatches, customMost,
+            customWins, customLosses, customTotal, customScore, true, cachedAt, stale ? Boolean.TRUE : null);
+    }
+}
@@ -0,0 +1,7 @@
+package com.balance.model;
+
+/**
+ * 큐별 랭크 정보 (솔로/자유). winRate 는 소수 첫째 자리까지의 %.
+ */
+public record RankEntry(String tier, String rank, int lp, int wins, int losses,
+                        double winRate, int score, String queueType) {}
@@ -0,0 +1,19 @@
+package com.balance.repository;
+
+import com.balance.entity.LaneGameEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface LaneGameRepository extends JpaRepository<LaneGameEntity, Long> {
+
+    /** 기존 lane_history 의 마지막 게임 번호 이후부터 발급되도록 기준 행을 넣는다 */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO lane_games (id, player_count, created_at) VALUES (:id, 0, :createdAt)",
+           nativeQuery = true)
+    void insertSeed(long id, LocalDateTime createdAt);
+}
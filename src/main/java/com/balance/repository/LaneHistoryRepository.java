@@ -6,13 +6,46 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface LaneHistoryRepository extends JpaRepository<LaneHistoryEntity, Long> {
 
-    @Query("SELECT h FROM LaneHistoryEntity h WHERE h.displayName = :displayName AND h.createdAt >= :since ORDER BY h.gameNumber DESC")
-    List<LaneHistoryEntity> findRecentByDisplayNameAndDate(String displayName, LocalDateTime since);
-
     @Query("SELECT COALESCE(MAX(h.gameNumber), 0) FROM LaneHistoryEntity h")
     int findMaxGameNumber();
+
+    /**
+     * 여러 플레이어의 최근 라인 이력을 한 번에 조회 (플레이어별 최신 limit 개, 최신순).
+     */
+    @Query(value = "SELECT t.display_name AS displayName, t.assigned_lane AS assignedLane FROM ("
+                 + "  SELECT h.display_name, h.assigned_lane, h.game_number,"
+                 + "         ROW_NUMBER() OVER (PARTITION BY h.display_name ORDER BY h.game_number DESC) AS rn"
+                 + "  FROM lane_history h"
+                 + "  WHERE h.display_name IN (:displayNames) AND h.created_at >= :since"
+                 + ") t WHERE t.rn <= :limit ORDER BY t.display_name, t.game_number DESC",
+           nativeQuery = true)
+    List<RecentLane> findRecentByDisplayNames(Collection<String> displayNames, LocalDateTime since, int limit);
+
+    interface RecentLane {
+        String getDisplayName();
+        String getAssignedLane();
+    }
+
+    /**
+     * 여러 플레이어의 기간 내 전체 이력 (최신 게임순). 세션 일정 계산용.
+     */
+    @Query(value = "SELECT h.display_name AS displayName, h.assigned_lane AS assignedLane,"
+                 + "       h.game_number AS gameNumber, h.team_no AS teamNo"
+                 + " FROM lane_history h"
+                 + " WHERE h.display_name IN (:displayNames) AND h.created_at >= :since"
+                 + " ORDER BY h.game_number DESC",
+           nativeQuery = true)
+    List<SessionRow> findSessionByDisplayNames(Collection<String> displayNames, LocalDateTime since);
+
+    interface SessionRow {
+        String getDisplayName();
+        String getAssignedLane();
+        Integer getGameNumber();
+        Integer getTeamNo();
+    }
 }
@@ -0,0 +1,19 @@
+package com.balance.repository;
+
+import com.balance.entity.MatchDocumentEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface MatchDocumentRepository extends JpaRepository<MatchDocumentEntity, Long> {
+    List<MatchDocumentEntity> findByMatchIdInAndKind(Collection<String> matchIds, String kind);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM match_documents ORDER BY created_at ASC LIMIT :count", nativeQuery = true)
+    int deleteOldest(int count);
+}
@@ -2,12 +2,44 @@ package com.balance.repository;
 
 import com.balance.entity.SummonerEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 public interface SummonerRepository extends JpaRepository<SummonerEntity, Long> {
     Optional<SummonerEntity> findByDisplayNameIgnoreCase(String displayName);
-    List<SummonerEntity> findAllByOrderByUpdatedAtDesc();
     void deleteByDisplayNameIgnoreCase(String displayName);
+
+    /** 목록용 요약 — data_json 은 읽지 않는다 */
+    @Query("SELECT s.displayName AS displayName, s.gameName AS gameName, s.tagLine AS tagLine, "
+         + "s.updatedAt AS updatedAt, s.iconUrl AS iconUrl, s.score AS score, "
+         + "s.tier AS tier, s.tierRank AS tierRank, s.leaguePoints AS leaguePoints "
+         + "FROM SummonerEntity s ORDER BY s.updatedAt DESC")
+    List<Summary> findSummaries();
+
+    /** 저장 형식 변환 — 읽은 뒤 다른 요청이 새로 저장했으면 (updated_at 이 바뀌었으면) 건드리지 않는다 */
+    @Transactional
+    @Modifying
+    @Query("UPDATE SummonerEntity s SET s.dataJson = :json, s.dataBlob = :blob "
+         + "WHERE s.id = :id AND s.updatedAt = :updatedAt")
+    int updateData(Long id, LocalDateTime updatedAt, String json, byte[] blob);
+
+    /** 요약 컬럼이 아직 채워지지 않은 (컬럼 추가 이전에 저장된) 행 */
+    List<SummonerEntity> findByScoreIsNull();
+
+    interface Summary {
+        String getDisplayName();
+        String getGameName();
+        String getTagLine();
+        LocalDateTime getUpdatedAt();
+        String getIconUrl();
+        Integer getScore();
+        String getTier();
+        String getTierRank();
+        Integer getLeaguePoints();
+    }
 }
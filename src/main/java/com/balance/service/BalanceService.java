@@ -1,9 +1,12 @@
 package com.balance.service;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class BalanceService {
@@ -14,171 +17,129 @@ public class BalanceService {
         "BOTTOM", "원딜", "UTILITY", "서포터", "UNKNOWN", "미정"
     );
 
+    /** 라인 배정 대상이 아닌 로비(인원 ≠ 라인 수 × 2)의 balance 탐색 제한 시간 — 넘기면 그때까지의 최선을 optimal=false 로 반환 */
+    @Value("${balance.time-budget-ms:200}")
+    private long timeBudgetMs = 200;
+
+    /** balance 모드에서 함께 돌려줄 대안 분할 수 (1 이면 최적 분할만) */
+    @Value("${balance.alternatives:5}")
+    private int alternativeCount = 5;
+
+    /** 10인 초과 로비 병렬 탐색 스레드 수 (0 이면 ForkJoinPool 공용 풀) */
+    @Value("${balance.parallelism:0}")
+    private int parallelism = 0;
+
+    /** 세션 일정(schedule) 지역 탐색 반복 수와 제한 시간 — 먼저 닿는 쪽에서 멈춘다 */
+    @Value("${balance.schedule.iterations:40000}")
+    private int scheduleIterations = 40000;
+
+    @Value("${balance.schedule.time-budget-ms:500}")
+    private long scheduleBudgetMs = 500;
+
+    /** 한 번에 짤 수 있는 최대 판 수 */
+    @Value("${balance.schedule.max-rounds:12}")
+    private int scheduleMaxRounds = 12;
+
+    private ForkJoinPool searchPool;
+
+    /** 이 인원을 넘는 로비는 병렬 탐색 */
+    private static final int PARALLEL_MIN_PLAYERS = 10;
+
     public Map<String, Object> balance(List<Map<String, Object>> players, String mode,
                                        List<List<Integer>> fixedGroups,
                                        List<List<Integer>> separateGroups,
                                        Map<Integer, String> laneLocks,
                                        Map<String, List<String>> laneHistory) {
+        return balance(players, mode, fixedGroups, separateGroups, laneLocks, laneHistory, LANES_LIST);
+    }
+
+    /**
+     * @param lanes 라인 목록 (순서 = 표시 순서). 인원이 라인 수의 2배면 라인까지 배정한다.
+     */
+    public Map<String, Object> balance(List<Map<String, Object>> players, String mode,
+                                       List<List<Integer>> fixedGroups,
+                                       List<List<Integer>> separateGroups,
+                                       Map<Integer, String> laneLocks,
+                                       Map<String, List<String>> laneHistory,
+                                       List<String> lanes) {
         int n    = players.size();
         int half = n / 2;
 
+        lanes = resolveLanes(lanes);
         if (fixedGroups == null)    fixedGroups    = List.of();
         if (separateGroups == null) separateGroups = List.of();
         if (laneLocks == null)      laneLocks      = Map.of();
         if (laneHistory == null)    laneHistory    = Map.of();
 
-        List<Map<String, Object>> t1Data = new ArrayList<>();
-        List<Map<String, Object>> t2Data = new ArrayList<>();
-        double s1 = 0, s2 = 0;
-        boolean laneBalanced = false;
-
-        if ("balance".equals(mode) && n == 10) {
-            List<int[]> allPerms   = generatePermutations(5);
-            List<List<Integer>> allCombos = generateCombinations(n, 5);
-
-            int    maxPrimaryMatches = -1;
-            double minScoreDiff     = Double.MAX_VALUE;
-            List<Object[]> bestT1   = null, bestT2 = null;
-            double bestS1 = 0, bestS2 = 0;
-
-            for (List<Integer> combo : allCombos) {
-                Set<Integer> comboSet = new HashSet<>(combo);
-                if (!isValidSplit(comboSet, n, fixedGroups, separateGroups)) continue;
-
-                List<Map<String, Object>> t1Players = combo.stream()
-                    .map(players::get).collect(Collectors.toList());
-                List<Map<String, Object>> t2Players = new ArrayList<>();
-                for (int i = 0; i < n; i++)
-                    if (!comboSet.contains(i)) t2Players.add(players.get(i));
+        // 모순된 조건은 여기서 바로 거절하고, 이후에는 조건을 만족하는 분할만 다룬다
+        List<LobbyPlayer> lobby = LobbyPlayer.of(players);
+        List<String> names = new ArrayList<>(n);
+        for (LobbyPlayer p : lobby) names.add(p.displayName());
+        TeamConstraints constraints = TeamConstraints.of(names, half, fixedGroups, separateGroups);
 
-                // Build per-team lane locks (remap global indices to team-local indices)
-                Map<Integer, String> t1Locks = new HashMap<>();
-                Map<Integer, String> t2Locks = new HashMap<>();
-                for (Map.Entry<Integer, String> le : laneLocks.entrySet()) {
-                    int gi = le.getKey();
-                    if (comboSet.contains(gi)) {
-                        t1Locks.put(combo.indexOf(gi), le.getValue());
-                    } else {
-                        // find local index in t2
-                        int li = 0;
-                        for (int i = 0; i < n; i++) {
-                            if (!comboSet.contains(i)) {
-                                if (i == gi) { t2Locks.put(li, le.getValue()); break; }
-                                li++;
-                            }
-                        }
-                    }
-                }
+        int topK = Math.max(1, alternativeCount);
 
-                Object[] t1Assign = getBestAssignment(t1Players, allPerms, t1Locks, laneHistory);
-                Object[] t2Assign = getBestAssignment(t2Players, allPerms, t2Locks, laneHistory);
-
-                int    totalM = (int)t1Assign[1] + (int)t2Assign[1];
-                double diff   = Math.abs((double)t1Assign[2] - (double)t2Assign[2]);
-
-                if (totalM > maxPrimaryMatches || (totalM == maxPrimaryMatches && diff < minScoreDiff)) {
-                    maxPrimaryMatches = totalM;
-                    minScoreDiff      = diff;
-                    bestT1 = (List<Object[]>) t1Assign[0];
-                    bestT2 = (List<Object[]>) t2Assign[0];
-                    bestS1 = (double) t1Assign[2];
-                    bestS2 = (double) t2Assign[2];
-                }
+        if ("balance".equals(mode) && n == lanes.size() * 2) {
+            LaneAssignmentEngine engine = encode(lobby, constraints, laneLocks, laneHistory, lanes);
+            if (!engine.solve(topK)) {
+                throw new IllegalStateException("조건을 만족하는 팀 구성이 없습니다");
             }
 
-            s1 = bestS1; s2 = bestS2;
-            for (Object[] pa : bestT1) {
-                Map<String, Object> p = new LinkedHashMap<>((Map<String, Object>) pa[0]);
-                String lane = (String) pa[1];
-                p.put("assignedLane",   lane);
-                p.put("assignedLaneKo", LANE_KO.getOrDefault(lane, lane));
-                t1Data.add(p);
-            }
-            for (Object[] pa : bestT2) {
-                Map<String, Object> p = new LinkedHashMap<>((Map<String, Object>) pa[0]);
-                String lane = (String) pa[1];
-                p.put("assignedLane",   lane);
-                p.put("assignedLaneKo", LANE_KO.getOrDefault(lane, lane));
-                t2Data.add(p);
+            List<Map<String, Object>> alternatives = new ArrayList<>();
+            for (int k = 0; k < engine.splitCount(); k++) {
+                List<Map<String, Object>> a1 = new ArrayList<>(), a2 = new ArrayList<>();
+                int[] t1Lanes = engine.team1ByLane(k), t2Lanes = engine.team2ByLane(k);
+                for (int lane = 0; lane < lanes.size(); lane++) {
+                    a1.add(withLane(players.get(t1Lanes[lane]), lanes.get(lane)));
+                    a2.add(withLane(players.get(t2Lanes[lane]), lanes.get(lane)));
+                }
+                alternatives.add(buildResult(a1, a2, engine.team1Score(k), engine.team2Score(k),
+                    true, true, mode, laneHistory, lanes));
             }
-            laneBalanced = true;
+            return withAlternatives(alternatives);
 
         } else if ("balance".equals(mode)) {
+            // 라인 수 2배 인원이 아니면 라인 배정 없이 점수 차만 최소화 (분기 한정, 제한 시간 내 최적)
+            // 10인 초과는 부분 문제로 나눠 병렬 탐색 (결과는 스레드 수와 무관)
+            double[] scores = new double[n];
+            for (int i = 0; i < n; i++) scores[i] = lobby.get(i).score();
+            ExactSplitSolver solver = new ExactSplitSolver(scores, constraints, topK,
+                System.nanoTime() + timeBudgetMs * 1_000_000L);
+            boolean found = n > PARALLEL_MIN_PLAYERS ? solver.solve(searchPool()) : solver.solve();
+            if (!found) {
+                throw new IllegalStateException("제한 시간 안에 조건을 만족하는 팀 구성을 찾지 못했습니다");
+            }
 
-            List<Integer> order = new ArrayList<>();
-            for (int i = 0; i < n; i++) order.add(i);
-            order.sort((a, b) -> Double.compare(getScore(players.get(b)), getScore(players.get(a))));
-
-            List<Integer> t1I = new ArrayList<>(), t2I = new ArrayList<>();
-            Set<Integer> t1Set = new HashSet<>(), t2Set = new HashSet<>();
-
-            // Pre-assign fixed group members together
-            for (int i : order) {
-                // Check if this player is in a fixed group with someone already assigned
-                int forcedTeam = getForcedTeam(i, t1Set, t2Set, fixedGroups);
-                // Check separation constraints
-                int separateForce = getSeparateForce(i, t1Set, t2Set, separateGroups);
-
-                int team = 0; // 0=undecided, 1=team1, 2=team2
-                if (forcedTeam != 0) team = forcedTeam;
-                if (separateForce != 0) {
-                    if (team != 0 && team != separateForce) {
-                        // Conflict — fixed says one team, separate says other. Fixed wins.
-                    } else if (team == 0) {
-                        team = separateForce;
-                    }
-                }
-
-                if (team == 1 && t1I.size() < half) {
-                    t1I.add(i); t1Set.add(i); s1 += getScore(players.get(i));
-                } else if (team == 2 && t2I.size() < (n - half)) {
-                    t2I.add(i); t2Set.add(i); s2 += getScore(players.get(i));
-                } else if (t1I.size() < half && (t2I.size() >= (n - half) || s1 <= s2)) {
-                    t1I.add(i); t1Set.add(i); s1 += getScore(players.get(i));
-                } else {
-                    t2I.add(i); t2Set.add(i); s2 += getScore(players.get(i));
-                }
+            List<Map<String, Object>> alternatives = new ArrayList<>();
+            for (int k = 0; k < solver.splitCount(); k++) {
+                List<Map<String, Object>> a1 = new ArrayList<>(), a2 = new ArrayList<>();
+                double as1 = 0, as2 = 0;
+                for (int i : solver.team1(k)) { a1.add(new LinkedHashMap<>(players.get(i))); as1 += scores[i]; }
+                for (int i : solver.team2(k)) { a2.add(new LinkedHashMap<>(players.get(i))); as2 += scores[i]; }
+                alternatives.add(buildResult(a1, a2, as1, as2, false, solver.optimal(), mode, laneHistory, lanes));
             }
-            for (int i : t1I) t1Data.add(new LinkedHashMap<>(players.get(i)));
-            for (int i : t2I) t2Data.add(new LinkedHashMap<>(players.get(i)));
+            return withAlternatives(alternatives);
+        }
 
-        } else if ("pure_random".equals(mode)) {
-            // Pure random: just shuffle and split, no lane assignment, no DB history
-            List<Integer> indices = new ArrayList<>();
-            for (int i = 0; i < n; i++) indices.add(i);
+        List<Map<String, Object>> t1Data = new ArrayList<>();
+        List<Map<String, Object>> t2Data = new ArrayList<>();
+        double s1 = 0, s2 = 0;
 
-            for (int attempt = 0; attempt < 1000; attempt++) {
-                Collections.shuffle(indices);
-                Set<Integer> team1Set = new HashSet<>(indices.subList(0, half));
-                if (isValidSplit(team1Set, n, fixedGroups, separateGroups)) break;
-            }
+        if ("pure_random".equals(mode)) {
+            // Pure random: just shuffle and split, no lane assignment, no DB history
+            List<Integer> indices = constraints.sample(ThreadLocalRandom.current());
 
-            for (int i : indices.subList(0, half)) t1Data.add(new LinkedHashMap<>(players.get(i)));
-            for (int i : indices.subList(half, n))  t2Data.add(new LinkedHashMap<>(players.get(i)));
-            s1 = t1Data.stream().mapToDouble(this::getScore).sum();
-            s2 = t2Data.stream().mapToDouble(this::getScore).sum();
+            for (int i : indices.subList(0, half)) { t1Data.add(new LinkedHashMap<>(players.get(i))); s1 += lobby.get(i).score(); }
+            for (int i : indices.subList(half, n))  { t2Data.add(new LinkedHashMap<>(players.get(i))); s2 += lobby.get(i).score(); }
 
         } else {
-            // Random mode with constraints
-            List<Integer> indices = new ArrayList<>();
-            for (int i = 0; i < n; i++) indices.add(i);
-
-            boolean valid = false;
-            for (int attempt = 0; attempt < 1000; attempt++) {
-                Collections.shuffle(indices);
-                Set<Integer> team1Set = new HashSet<>(indices.subList(0, half));
-                if (isValidSplit(team1Set, n, fixedGroups, separateGroups)) {
-                    valid = true;
-                    break;
-                }
-            }
+            // Random mode with constraints — 조건을 만족하는 분할 중에서만 균등하게 뽑는다
+            List<Integer> indices = constraints.sample(ThreadLocalRandom.current());
 
-            for (int i : indices.subList(0, half)) t1Data.add(new LinkedHashMap<>(players.get(i)));
-            for (int i : indices.subList(half, n))  t2Data.add(new LinkedHashMap<>(players.get(i)));
-            s1 = t1Data.stream().mapToDouble(this::getScore).sum();
-            s2 = t2Data.stream().mapToDouble(this::getScore).sum();
+            for (int i : indices.subList(0, half)) { t1Data.add(new LinkedHashMap<>(players.get(i))); s1 += lobby.get(i).score(); }
+            for (int i : indices.subList(half, n))  { t2Data.add(new LinkedHashMap<>(players.get(i))); s2 += lobby.get(i).score(); }
 
-            if (n == 10) {
+            if (n == lanes.size() * 2) {
                 // Remap laneLocks: global indices -> team-local indices
                 Map<Integer, String> t1Locks = new HashMap<>();
                 Map<Integer, String> t2Locks = new HashMap<>();
@@ -190,13 +151,170 @@ public class BalanceService {
                     int li2 = t2Indices.indexOf(le.getKey());
                     if (li2 >= 0) t2Locks.put(li2, le.getValue());
                 }
-                assignRandomLanes(t1Data, t1Locks, laneHistory);
-                assignRandomLanes(t2Data, t2Locks, laneHistory);
+                assignRandomLanes(t1Data, t1Locks, laneHistory, lanes);
+                assignRandomLanes(t2Data, t2Locks, laneHistory, lanes);
             }
         }
 
+        return buildResult(t1Data, t2Data, s1, s2, false, true, mode, laneHistory, lanes);
+    }
+
+    /**
+     * 한 세션의 여러 판 일정을 한 번에 짠다 (SessionScheduler).
+     * 같은 팀 반복, 같은 라인 반복, 판별 점수 차와 누적 유불리를 함께 줄이며, 오늘 저장된 이력을 출발점으로 쓴다.
+     * 고정/분리 조건은 모든 판에 적용되고, 인원이 라인 수의 2배면 라인까지 배정한다 (라인 고정도 모든 판에 적용).
+     * 일정은 저장하지 않는다 — 판을 치른 뒤 다시 요청하면 그 사이 저장된 이력을 출발점으로 남은 판을 새로 짠다.
+     *
+     * @param laneLocks       플레이어 인덱스 → 고정 라인 (라인 배정이 없는 로비에서는 쓸 수 없음)
+     * @param laneHistory     displayName → 오늘 맡은 라인 목록
+     * @param teammateHistory displayName → (displayName → 오늘 같은 팀이었던 횟수)
+     * @param seed            같은 입력으로 같은 일정을 다시 받고 싶을 때 (null 이면 매번 다름)
+     */
+    public Map<String, Object> schedule(List<Map<String, Object>> players, int rounds,
+                                        List<List<Integer>> fixedGroups,
+                                        List<List<Integer>> separateGroups,
+                                        Map<Integer, String> laneLocks,
+                                        Map<String, List<String>> laneHistory,
+                                        Map<String, Map<String, Integer>> teammateHistory,
+                                        List<String> lanes, Long seed) {
+        int n    = players.size();
+        int half = n / 2;
+
+        if (rounds < 1 || rounds > scheduleMaxRounds) {
+            throw new IllegalArgumentException("판 수는 1 ~ " + scheduleMaxRounds + " 사이로 지정해야 합니다");
+        }
+        lanes = resolveLanes(lanes);
+        if (fixedGroups == null)     fixedGroups     = List.of();
+        if (separateGroups == null)  separateGroups  = List.of();
+        if (laneLocks == null)       laneLocks       = Map.of();
+        if (laneHistory == null)     laneHistory     = Map.of();
+        if (teammateHistory == null) teammateHistory = Map.of();
+
+        int teamSize = n == lanes.size() * 2 ? lanes.size() : 0;
+        int[] lock = scheduleLocks(laneLocks, n, teamSize, lanes);
+        // 같은 라인에 고정된 두 사람은 반드시 다른 팀 — 분리 조건으로 넘겨 탐색에서부터 뺀다
+        List<List<Integer>> separate = new ArrayList<>(separateGroups);
+        for (int p = 0; p < n; p++) {
+            for (int q = p + 1; q < n; q++) {
+                if (lock[p] >= 0 && lock[p] == lock[q]) separate.add(List.of(p, q));
+            }
+        }
+
+        List<LobbyPlayer> lobby = LobbyPlayer.of(players);
+        List<String> names = new ArrayList<>(n);
+        for (LobbyPlayer p : lobby) names.add(p.displayName());
+        TeamConstraints constraints = TeamConstraints.of(names, half, fixedGroups, separate);
+        double[] score        = new double[n];
+        int[]    primary      = new int[n];
+        int[]    secondary    = new int[n];
+        int[][]  histLane     = new int[n][Math.max(1, teamSize)];
+        int[][]  histTogether = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            LobbyPlayer p = lobby.get(i);
+            score[i]     = p.score();
+            primary[i]   = lanes.indexOf(p.primaryLane());
+            secondary[i] = lanes.indexOf(p.secondaryLane());
+            if (teamSize > 0) {
+                for (String lane : laneHistory.getOrDefault(names.get(i), List.of())) {
+                    int li = lanes.indexOf(lane);
+                    if (li >= 0) histLane[i][li]++;
+                }
+            }
+            Map<String, Integer> mates = teammateHistory.getOrDefault(names.get(i), Map.of());
+            for (int j = i + 1; j < n; j++) histTogether[i][j] = mates.getOrDefault(names.get(j), 0);
+        }
+
+        SessionScheduler scheduler = new SessionScheduler(score, primary, secondary, teamSize,
+            histLane, histTogether, lock, constraints, rounds);
+        scheduler.solve(seed != null ? new Random(seed) : new Random(), scheduleIterations,
+            System.nanoTime() + scheduleBudgetMs * 1_000_000L);
+        if (scheduler.lockViolations() > 0) {
+            throw new IllegalStateException("라인 고정을 모든 판에서 지키는 일정을 찾지 못했습니다");
+        }
+
+        // 판마다 오늘 이력 + 앞선 판 배정과 겹치는 라인에 laneConflict 표시
+        Map<String, List<String>> seen = new HashMap<>();
+        for (Map.Entry<String, List<String>> e : laneHistory.entrySet()) seen.put(e.getKey(), new ArrayList<>(e.getValue()));
+
+        List<Map<String, Object>> plan = new ArrayList<>();
+        double totalDiff = 0, maxDiff = 0;
+        for (int r = 0; r < scheduler.roundCount(); r++) {
+            List<Map<String, Object>> t1 = new ArrayList<>(), t2 = new ArrayList<>();
+            for (int i : scheduler.team1(r)) t1.add(scheduledPlayer(players.get(i), scheduler, r, i, lanes));
+            for (int i : scheduler.team2(r)) t2.add(scheduledPlayer(players.get(i), scheduler, r, i, lanes));
+
+            Map<String, Object> round = new LinkedHashMap<>();
+            round.put("round", r + 1);
+            round.putAll(buildResult(t1, t2, scheduler.team1Score(r), scheduler.team2Score(r),
+                teamSize > 0, true, "schedule", seen, lanes));
+            plan.add(round);
+
+            double d = (double) round.get("scoreDiff");
+            totalDiff += d;
+            maxDiff    = Math.max(maxDiff, d);
+            if (teamSize > 0) {
+                for (int i = 0; i < n; i++) {
+                    seen.computeIfAbsent(names.get(i), k -> new ArrayList<>()).add(lanes.get(scheduler.laneOf(r, i)));
+                }
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rounds",          plan);
+        result.put("teammateRepeats", scheduler.teammateRepeats());
+        result.put("laneRepeats",     scheduler.laneRepeats());
+        result.put("totalScoreDiff",  totalDiff);
+        result.put("maxScoreDiff",    maxDiff);
+        return result;
+    }
+
+    /**
+     * 일정용 라인 고정 → ordinal 배열. balance 와 달리 쓸 수 없는 고정은 무시하지 않고 거절한다
+     * (여러 판에 걸쳐 조용히 어긋나면 알아채기 어렵다).
+     */
+    private static int[] scheduleLocks(Map<Integer, String> laneLocks, int n, int teamSize, List<String> lanes) {
+        int[] lock = new int[n];
+        Arrays.fill(lock, -1);
+        if (laneLocks.isEmpty()) return lock;
+        if (teamSize == 0) {
+            throw new IllegalArgumentException("라인 고정은 인원이 라인 수의 2배인 로비에서만 쓸 수 있습니다");
+        }
+        int[] perLane = new int[teamSize];
+        for (Map.Entry<Integer, String> e : laneLocks.entrySet()) {
+            int i = e.getKey();
+            int lane = lanes.indexOf(e.getValue());
+            if (i < 0 || i >= n) throw new IllegalArgumentException("라인 고정 대상이 로비에 없습니다: " + i);
+            if (lane < 0)        throw new IllegalArgumentException("알 수 없는 라인입니다: " + e.getValue());
+            if (++perLane[lane] > 2) {
+                throw new IllegalArgumentException(e.getValue() + " 라인에는 두 명까지만 고정할 수 있습니다");
+            }
+            lock[i] = lane;
+        }
+        return lock;
+    }
+
+    private Map<String, Object> scheduledPlayer(Map<String, Object> player, SessionScheduler scheduler,
+                                                int round, int index, List<String> lanes) {
+        int lane = scheduler.laneOf(round, index);
+        return lane >= 0 ? withLane(player, lanes.get(lane)) : new LinkedHashMap<>(player);
+    }
+
+    /** 라인 목록 기본값 적용 및 개수 검사 */
+    private List<String> resolveLanes(List<String> lanes) {
+        if (lanes == null || lanes.isEmpty()) return LANES_LIST;
+        if (lanes.size() > LaneAssignmentEngine.MAX_TEAM_SIZE) {
+            throw new IllegalArgumentException("라인은 최대 " + LaneAssignmentEngine.MAX_TEAM_SIZE + "개까지 지정할 수 있습니다");
+        }
+        return lanes;
+    }
+
+    /** 팀을 라인 순서로 정렬하고, 최근 라인 중복을 표시해 응답 형태로 만든다 */
+    private Map<String, Object> buildResult(List<Map<String, Object>> t1Data, List<Map<String, Object>> t2Data,
+                                            double s1, double s2, boolean laneBalanced, boolean optimal,
+                                            String mode, Map<String, List<String>> laneHistory,
+                                            List<String> lanes) {
         Map<String, Integer> laneOrder = new HashMap<>();
-        for (int i = 0; i < LANES_LIST.size(); i++) laneOrder.put(LANES_LIST.get(i), i);
+        for (int i = 0; i < lanes.size(); i++) laneOrder.put(lanes.get(i), i);
 
         Comparator<Map<String, Object>> laneComp = (a, b) -> {
             String la = (String) a.getOrDefault("assignedLane", a.getOrDefault("primaryLane", ""));
@@ -222,11 +340,31 @@ public class BalanceService {
         result.put("team2Score",  s2);
         result.put("scoreDiff",   Math.abs(s1 - s2));
         result.put("laneBalanced", laneBalanced);
+        if ("balance".equals(mode)) result.put("optimal", optimal);
         result.put("mode",        mode);
         result.put("laneConflictCount", conflictCount);
         return result;
     }
 
+    /** 첫 번째(최적) 분할을 그대로 응답 본문으로 쓰고, 전체 목록을 alternatives 로 붙인다 */
+    private Map<String, Object> withAlternatives(List<Map<String, Object>> alternatives) {
+        Map<String, Object> result = new LinkedHashMap<>(alternatives.get(0));
+        result.put("alternatives", alternatives);
+        return result;
+    }
+
+    /** 큰 로비 탐색용 풀 — 설정이 없으면 공용 풀을 쓰고, 있으면 처음 쓸 때 만든다 */
+    private synchronized ForkJoinPool searchPool() {
+        if (parallelism <= 0) return ForkJoinPool.commonPool();
+        if (searchPool == null) searchPool = new ForkJoinPool(parallelism);
+        return searchPool;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (searchPool != null) searchPool.shutdownNow();
+    }
+
     private boolean markLaneConflict(Map<String, Object> player, Map<String, List<String>> laneHistory) {
         String assignedLane = (String) player.get("assignedLane");
         if (assignedLane == null) return false;
@@ -239,79 +377,43 @@ public class BalanceService {
         return false;
     }
 
-    private double getScore(Map<String, Object> player) {
-        Object score = player.get("score");
-        return score instanceof Number ? ((Number) score).doubleValue() : 0.0;
-    }
-
-    private String getPrimaryLane(Map<String, Object> player) {
-        Object v = player.get("primaryLane");
-        return v instanceof String ? (String) v : "";
-    }
-
-    private String getSecondaryLane(Map<String, Object> player) {
-        Object v = player.get("secondaryLane");
-        return v instanceof String ? (String) v : "";
-    }
-
-    private Object[] getBestAssignment(List<Map<String, Object>> team, List<int[]> allPerms,
-                                       Map<Integer, String> laneLocks,
-                                       Map<String, List<String>> laneHistory) {
-        int    bestM     = -1;
-        double bestScore = 0;
-        int    bestHistoryConflicts = Integer.MAX_VALUE;
-        List<Object[]> bestAssignment = null;
-
-        for (int[] perm : allPerms) {
-            // Check lane lock constraints: locked player must be at the locked lane position
-            boolean valid = true;
-            for (Map.Entry<Integer, String> le : laneLocks.entrySet()) {
-                int playerIdx = le.getKey();
-                String requiredLane = le.getValue();
-                int requiredPos = LANES_LIST.indexOf(requiredLane);
-                if (requiredPos < 0) continue;
-                // perm[requiredPos] should be playerIdx
-                if (perm[requiredPos] != playerIdx) { valid = false; break; }
-            }
-            if (!valid) continue;
-
-            int    m     = 0;
-            double score = 0;
-            int    historyConflicts = 0;
-            for (int i = 0; i < 5; i++) {
-                Map<String, Object> p  = team.get(perm[i]);
-                String lane            = LANES_LIST.get(i);
-                double base            = getScore(p);
-                if (lane.equals(getPrimaryLane(p))) {
-                    m++; score += base;
-                } else if (lane.equals(getSecondaryLane(p))) {
-                    score += base * 0.90;
-                } else {
-                    score += base * 0.80;
-                }
-                // Check lane history conflicts
-                String playerName = getPlayerDisplayName(p);
-                List<String> history = laneHistory.getOrDefault(playerName, List.of());
-                if (history.contains(lane)) historyConflicts++;
-            }
-            // Prefer: fewer history conflicts > more primary matches > lower score diff
-            if (historyConflicts < bestHistoryConflicts
-                || (historyConflicts == bestHistoryConflicts && m > bestM)
-                || (historyConflicts == bestHistoryConflicts && m == bestM && score > bestScore)) {
-                bestHistoryConflicts = historyConflicts;
-                bestM     = m;
-                bestScore = score;
-                List<Object[]> assign = new ArrayList<>();
-                for (int i = 0; i < 5; i++)
-                    assign.add(new Object[]{ team.get(perm[i]), LANES_LIST.get(i) });
-                bestAssignment = assign;
+    /**
+     * 라인 수 × 2 인 로비를 원시 배열로 인코딩해 라인 배정 엔진을 만든다.
+     */
+    private LaneAssignmentEngine encode(List<LobbyPlayer> lobby,
+                                        TeamConstraints constraints,
+                                        Map<Integer, String> laneLocks,
+                                        Map<String, List<String>> laneHistory,
+                                        List<String> lanes) {
+        int n = lobby.size();
+        double[] score     = new double[n];
+        int[]    primary   = new int[n];
+        int[]    secondary = new int[n];
+        int[]    history   = new int[n];
+        int[]    lock      = new int[n];
+        for (int i = 0; i < n; i++) {
+            LobbyPlayer p = lobby.get(i);
+            score[i]     = p.score();
+            primary[i]   = lanes.indexOf(p.primaryLane());
+            secondary[i] = lanes.indexOf(p.secondaryLane());
+            for (String lane : laneHistory.getOrDefault(p.displayName(), List.of())) {
+                int li = lanes.indexOf(lane);
+                if (li >= 0) history[i] |= 1 << li;
             }
+            lock[i] = lanes.indexOf(laneLocks.getOrDefault(i, ""));
         }
-        return new Object[]{ bestAssignment, bestM, bestScore };
+        return new LaneAssignmentEngine(lanes.size(), score, primary, secondary, history, lock, constraints);
+    }
+
+    private Map<String, Object> withLane(Map<String, Object> player, String lane) {
+        Map<String, Object> p = new LinkedHashMap<>(player);
+        p.put("assignedLane",   lane);
+        p.put("assignedLaneKo", LANE_KO.getOrDefault(lane, lane));
+        return p;
     }
 
     private void assignRandomLanes(List<Map<String, Object>> team, Map<Integer, String> laneLocks,
-                                    Map<String, List<String>> laneHistory) {
+                                    Map<String, List<String>> laneHistory, List<String> lanes) {
         // Identify which lanes are already locked
         Set<String> usedLanes = new HashSet<>();
         Set<Integer> lockedPlayers = new HashSet<>();
@@ -327,7 +429,7 @@ public class BalanceService {
 
         // Remaining lanes and unlocked players
         List<String> remainingLanes = new ArrayList<>();
-        for (String lane : LANES_LIST) {
+        for (String lane : lanes) {
             if (!usedLanes.contains(lane)) remainingLanes.add(lane);
         }
         List<Integer> unlockedPlayers = new ArrayList<>();
@@ -373,99 +475,4 @@ public class BalanceService {
         Object dn = player.get("displayName");
         return dn instanceof String ? (String) dn : "";
     }
-
-
-    /**
-     * Check if a team1 split satisfies all fixed and separate constraints.
-     */
-    private boolean isValidSplit(Set<Integer> team1Set, int n,
-                                  List<List<Integer>> fixedGroups,
-                                  List<List<Integer>> separateGroups) {
-        // Fixed groups: all members must be on same team
-        for (List<Integer> group : fixedGroups) {
-            if (group.size() < 2) continue;
-            boolean first = team1Set.contains(group.get(0));
-            for (int i = 1; i < group.size(); i++) {
-                if (team1Set.contains(group.get(i)) != first) return false;
-            }
-        }
-        // Separate groups: for each pair, must be on different teams
-        for (List<Integer> group : separateGroups) {
-            if (group.size() < 2) continue;
-            for (int i = 0; i < group.size(); i++) {
-                for (int j = i + 1; j < group.size(); j++) {
-                    boolean iInT1 = team1Set.contains(group.get(i));
-                    boolean jInT1 = team1Set.contains(group.get(j));
-                    if (iInT1 == jInT1) return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    /**
-     * For greedy balance: check if player must go to a specific team due to fixed group constraints.
-     * Returns 0=undecided, 1=team1, 2=team2
-     */
-    private int getForcedTeam(int playerIdx, Set<Integer> team1Set, Set<Integer> team2Set,
-                               List<List<Integer>> fixedGroups) {
-        for (List<Integer> group : fixedGroups) {
-            if (!group.contains(playerIdx)) continue;
-            for (int member : group) {
-                if (member == playerIdx) continue;
-                if (team1Set.contains(member)) return 1;
-                if (team2Set.contains(member)) return 2;
-            }
-        }
-        return 0;
-    }
-
-    /**
-     * For greedy balance: check if player must go to a specific team due to separate constraints.
-     * Returns 0=undecided, 1=team1, 2=team2
-     */
-    private int getSeparateForce(int playerIdx, Set<Integer> team1Set, Set<Integer> team2Set,
-                                  List<List<Integer>> separateGroups) {
-        for (List<Integer> group : separateGroups) {
-            if (!group.contains(playerIdx)) continue;
-            for (int member : group) {
-                if (member == playerIdx) continue;
-                if (team1Set.contains(member)) return 2; // must go to opposite team
-                if (team2Set.contains(member)) return 1;
-            }
-        }
-        return 0;
-    }
-
-    private List<int[]> generatePermutations(int n) {
-        List<int[]> result = new ArrayList<>();
-        int[] arr = new int[n];
-        for (int i = 0; i < n; i++) arr[i] = i;
-        permHelper(arr, 0, result);
-        return result;
-    }
-
-    private void permHelper(int[] arr, int start, List<int[]> result) {
-        if (start == arr.length) { result.add(arr.clone()); return; }
-        for (int i = start; i < arr.length; i++) {
-            int tmp = arr[start]; arr[start] = arr[i]; arr[i] = tmp;
-            permHelper(arr, start + 1, result);
-            tmp = arr[start]; arr[start] = arr[i]; arr[i] = tmp;
-        }
-    }
-
-    private List<List<Integer>> generateCombinations(int n, int r) {
-        List<List<Integer>> result = new ArrayList<>();
-        combHelper(0, n, r, new ArrayList<>(), result);
-        return result;
-    }
-
-    private void combHelper(int start, int n, int r, List<Integer> cur, List<List<Integer>> result) {
-        if (cur.size() == r) { result.add(new ArrayList<>(cur)); return; }
-        for (int i = start; i < n; i++) {
-            cur.add(i);
-            combHelper(i + 1, n, r, cur, result);
-            cur.remove(cur.size() - 1);
-        }
-    }
 }
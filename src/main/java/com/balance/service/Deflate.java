@@ -0,0 +1,57 @@
+package com.balance.service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 저장용 zlib(deflate + zlib 헤더/Adler-32) 압축 (매치 문서 본문, 소환사 스냅샷 본문).
+ * 원본 길이는 호출한 쪽이 따로 저장해 두고 풀 때 넘긴다. Deflater/Inflater 는 네이티브 메모리를 쓰므로 항상 end 한다.
+ */
+final class Deflate {
+
+    /** deflate 의 최대 압축률은 약 1032:1 — 저장된 원본 길이가 이보다 크면 깨진 값이라 배열을 잡기 전에 거절한다 */
+    private static final int MAX_RATIO = 1032;
+
+    private Deflate() {}
+
+    static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buf, 0, deflater.deflate(buf));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] data, int offset, int rawSize) throws DataFormatException {
+        if (rawSize < 0 || rawSize > (long) (data.length - offset) * MAX_RATIO) {
+            throw new DataFormatException("저장된 원본 길이가 압축 본문과 맞지 않습니다: " + rawSize);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            byte[] raw = new byte[rawSize];
+            int n = 0;
+            while (n < rawSize && !inflater.finished()) {
+                int read = inflater.inflate(raw, n, rawSize - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("압축 데이터가 잘렸습니다");
+                }
+                n += read;
+            }
+            if (n < rawSize) throw new DataFormatException("압축 해제 크기가 저장된 길이보다 작습니다");
+            return raw;
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.balance.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * "balance" 모드에서 인원이 라인 수의 2배가 아닌 로비의 팀 분할 (분기 한정, 라인 배정 없음).
+ * 팀1 인원 size1, 팀2 인원 n - size1 (홀수 인원이면 팀2가 한 명 많다) 으로 나누면서
+ * 고정/분리 조건을 모두 지키는 분할 중 점수 차 |s1 - s2| 가 최소인 것을 찾는다.
+ * 조건은 TeamConstraints 의 블록 방향으로 다루므로, 같은 블록의 첫 플레이어를 배정하면 나머지는 따라 정해진다.
+ *
+ * 플레이어를 점수 내림차순으로 하나씩 배정하고, 남은 플레이어로 만들 수 있는 팀1 점수 범위
+ * (남은 것 중 가장 큰 k 명 / 가장 작은 k 명의 합) 로 점수 차의 하한을 구해 가지를 친다.
+ * 점수 차가 가장 작은 K 개의 분할을 찾으며, 가지치기 기준은 현재 K 번째 분할의 점수 차다.
+ * 제한 시간 안에 탐색이 끝나면 최적이 보장되고, 시간이 다 되면 그때까지의 최선을 돌려준다.
+ *
+ * 큰 로비는 탐색 트리의 위쪽 몇 단계를 펼쳐 부분 문제로 나누고 ForkJoinPool 에서 나눠 푼다.
+ * 부분 문제마다 자기 상위 K 개를 따로 두고, 모든 부분 문제가 공유하는 한계(지금까지 어느 한 부분 문제가
+ * 찾은 K 번째 점수 차의 최솟값)보다 확실히 나쁜 가지만 친다. 같은 점수 차는 치지 않으므로,
+ * 부분 문제 순서대로 결과를 합치면 스레드 수와 관계없이 순차 탐색과 같은 결과가 나온다.
+ */
+final class ExactSplitSolver {
+
+    private static final double EPS = 1e-9;
+    /** 시계 확인 간격 (노드 수) */
+    private static final int CLOCK_MASK = 0xFFF;
+    /** 병렬 탐색 시 스레드당 부분 문제 수 (부분 문제마다 가지치기 정도가 달라 넉넉히 나눈다) */
+    private static final int PARTS_PER_THREAD = 16;
+
+    private final int n;
+    private final int size1;
+    private final int[] order;         // 배정 순서 (점수 내림차순)
+    private final double[] score;      // order 기준 점수
+    private final double[] prefix;     // order 기준 점수 누적합
+    private final double total;
+    private final TeamConstraints constraints;
+    private final long deadline;
+    private final int topK;
+
+    /** 부분 문제들이 공유하는 가지치기 한계 (점수 차의 double 비트 — 음이 아니므로 long 비교로 대소가 같다) */
+    private final AtomicLong sharedBound = new AtomicLong(Double.doubleToLongBits(Double.MAX_VALUE));
+    private volatile boolean timedOut;
+
+    // ── 결과: 상위 K 개 분할 ─────────────────────────────────────────────────
+    private final TopK result;
+
+    /**
+     * @param scores        플레이어별 점수 (입력 인덱스 기준)
+     * @param constraints   사전 처리된 고정/분리 조건 (팀1 인원 포함)
+     * @param topK          찾을 분할 수 (점수 차가 작은 순)
+     * @param deadlineNanos System.nanoTime() 기준 탐색 마감 시각
+     */
+    ExactSplitSolver(double[] scores, TeamConstraints constraints, int topK, long deadlineNanos) {
+        this.n           = scores.length;
+        this.topK        = topK;
+        this.size1       = constraints.team1Size();
+        this.constraints = constraints;
+        this.deadline    = deadlineNanos;
+        this.result      = new TopK(topK);
+
+        Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) boxed[i] = i;
+        Arrays.sort(boxed, (a, b) -> Double.compare(scores[b], scores[a]));
+        order = new int[n];
+        for (int k = 0; k < n; k++) order[k] = boxed[k];
+
+        score  = new double[n];
+        prefix = new double[n + 1];
+        for (int k = 0; k < n; k++) {
+            score[k]      = scores[order[k]];
+            prefix[k + 1] = prefix[k] + score[k];
+        }
+        total = prefix[n];
+    }
+
+    /** 한 스레드에서 순차 탐색. @return 조건을 만족하는 분할을 하나라도 찾았으면 true */
+    boolean solve() {
+        return solve(null);
+    }
+
+    /**
+     * pool 이 있고 병렬도가 2 이상이면 부분 문제로 나눠 병렬 탐색한다.
+     * @return 조건을 만족하는 분할을 하나라도 찾았으면 true
+     */
+    boolean solve(ForkJoinPool pool) {
+        if (n == 0 || topK == 0) return false;
+        Search root = new Search();
+        if (pool == null || pool.getParallelism() < 2) {
+            root.run();
+            root.top.drainTo(result);
+        } else {
+            int depth = 0;
+            while ((1 << depth) < pool.getParallelism() * PARTS_PER_THREAD && depth < n) depth++;
+            List<Search> parts = new ArrayList<>();
+            root.split(root.k, root.c1, root.s1, depth, parts);
+            pool.invoke(new Parts(parts, 0, parts.size()));
+            for (Search part : parts) part.top.drainTo(result);   // 부분 문제 순서 = 순차 탐색 순서
+        }
+        return result.count > 0;
+    }
+
+    /** 탐색을 끝까지 마쳐 상위 K 개가 보장되면 true */
+    boolean optimal() { return !timedOut; }
+
+    /** 찾은 분할 수 (≤ topK) */
+    int splitCount() { return result.count; }
+
+    /** i 번째 분할의 팀1 플레이어 (입력 인덱스, 오름차순) */
+    List<Integer> team1(int i) { return members(result.side[i], 1); }
+    /** i 번째 분할의 팀2 플레이어 (입력 인덱스, 오름차순) */
+    List<Integer> team2(int i) { return members(result.side[i], 2); }
+
+    /** k 번째부터 남은 플레이어로 얻을 수 있는 점수 차의 하한 */
+    private double lowerBound(int k, int c1, double s1) {
+        int need = size1 - c1;
+        double hi = s1 + prefix[k + need] - prefix[k];   // 남은 것 중 큰 점수 need 명
+        double lo = s1 + prefix[n] - prefix[n - need];   // 남은 것 중 작은 점수 need 명
+        if (2 * lo > total) return 2 * lo - total;
+        if (2 * hi < total) return total - 2 * hi;
+        return 0;
+    }
+
+    private List<Integer> members(int[] sides, int team) {
+        List<Integer> members = new ArrayList<>();
+        boolean[] in = new boolean[n];
+        for (int k = 0; k < n; k++) if (sides[k] == team) in[order[k]] = true;
+        for (int i = 0; i < n; i++) if (in[i]) members.add(i);
+        return members;
+    }
+
+    /** 탐색 트리의 한 가지(부분 문제)와 그 안에서 찾은 상위 K 개 */
+    private final class Search {
+        final int[] side;              // order 기준 0 = 미배정, 1 = 팀1, 2 = 팀2
+        final int[] orient;            // 블록별 팀1 색 (-1 = 아직 정하지 않음)
+        final int[] decidedAt;         // 블록 방향을 이 탐색에서 처음 정한 위치 (되돌릴 때 사용, -1 = 없음)
+        final int k, c1;               // 시작 지점: 배정한 인원, 그 중 팀1 인원
+        final double s1;               // 시작 지점의 팀1 점수
+        final TopK top = new TopK(topK);
+        long nodes;
+
+        /** 루트 */
+        Search() {
+            side   = new int[n];
+            orient = new int[constraints.blockCount()];
+            for (int b = 0; b < orient.length; b++) orient[b] = constraints.pinnedOf(b);
+            decidedAt = new int[orient.length];
+            Arrays.fill(decidedAt, -1);
+            // 두 팀을 바꿔도 유효하면 첫 플레이어를 팀1 에 고정해 대칭인 절반을 건너뛴다
+            if (constraints.symmetric()) {
+                int p = order[0];
+                orient[constraints.blockOf(p)] = constraints.colorOf(p);
+            }
+            k = 0; c1 = 0; s1 = 0;
+        }
+
+        /** 부분 문제: 현재 배정 상태의 스냅샷 */
+        Search(Search from, int k, int c1, double s1) {
+            this.side   = from.side.clone();
+            this.orient = from.orient.clone();
+            this.decidedAt = new int[orient.length];
+            Arrays.fill(decidedAt, -1);
+            this.k = k; this.c1 = c1; this.s1 = s1;
+        }
+
+        void run() {
+            dfs(k, c1, s1);
+        }
+
+        /** dfs 와 같은 순서로 depth 단계까지 펼쳐 부분 문제를 만든다 */
+        void split(int k, int c1, double s1, int depth, List<Search> out) {
+            if (k == n || k == depth) {
+                out.add(new Search(this, k, c1, s1));
+                return;
+            }
+            double s2 = prefix[k] - s1;
+            int first = s1 <= s2 ? 1 : 2;
+            for (int t = 0; t < 2; t++) {
+                int team = t == 0 ? first : 3 - first;
+                if (!place(k, c1, team)) continue;
+                split(k + 1, team == 1 ? c1 + 1 : c1, team == 1 ? s1 + score[k] : s1, depth, out);
+                unplace(k);
+            }
+        }
+
+        private void dfs(int k, int c1, double s1) {
+            if (timedOut) return;
+            if ((++nodes & CLOCK_MASK) == 0 && System.nanoTime() > deadline) {
+                timedOut = true;
+                return;
+            }
+            if (k == n) {
+                double diff = Math.abs(2 * s1 - total);
+                if (top.offer(diff, side) && top.full()) {
+                    sharedBound.accumulateAndGet(Double.doubleToLongBits(top.cutoff()), Math::min);
+                }
+                return;
+            }
+            double lb = lowerBound(k, c1, s1);
+            // 자기 K 번째와 같거나 나쁘면 치고, 다른 부분 문제의 K 번째보다는 확실히 나쁠 때만 친다
+            if (lb >= top.cutoff() - EPS) return;
+            if (lb > Double.longBitsToDouble(sharedBound.get()) + EPS) return;
+
+            // 현재 점수가 낮은 팀부터 시도해 좋은 해를 빨리 찾는다
+            double s2 = prefix[k] - s1;
+            int first = s1 <= s2 ? 1 : 2;
+            for (int t = 0; t < 2; t++) {
+                int team = t == 0 ? first : 3 - first;
+                if (!place(k, c1, team)) continue;
+                dfs(k + 1, team == 1 ? c1 + 1 : c1, team == 1 ? s1 + score[k] : s1);
+                unplace(k);
+                if (top.cutoff() <= EPS) return;   // 점수 차 0 인 분할을 K 개 찾았으면 더 좋은 해는 없다
+            }
+        }
+
+        /** k 번째 플레이어를 team 에 넣을 수 있으면 넣는다 (같은 블록의 방향도 함께 정해진다) */
+        private boolean place(int k, int c1, int team) {
+            if (team == 1 ? c1 >= size1 : k - c1 >= n - size1) return false;
+            int b     = constraints.blockOf(order[k]);
+            int color = constraints.colorOf(order[k]);
+            int want  = team == 1 ? color : color ^ 1;   // 이 팀에 넣으려면 필요한 블록 방향
+            if (orient[b] >= 0 && orient[b] != want) return false;
+            if (orient[b] < 0) {
+                orient[b] = want;
+                decidedAt[b] = k;
+            }
+            side[k] = team;
+            return true;
+        }
+
+        private void unplace(int k) {
+            int b = constraints.blockOf(order[k]);
+            if (decidedAt[b] == k) {
+                orient[b]    = -1;
+                decidedAt[b] = -1;
+            }
+            side[k] = 0;
+        }
+    }
+
+    /** 부분 문제 범위를 반씩 나눠 푸는 fork-join 작업 */
+    private static final class Parts extends RecursiveAction {
+        private final List<Search> parts;
+        private final int lo, hi;
+
+        Parts(List<Search> parts, int lo, int hi) {
+            this.parts = parts;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                parts.get(lo).run();
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Parts(parts, lo, mid), new Parts(parts, mid, hi));
+        }
+    }
+
+    /** 점수 차 오름차순 상위 K 개 (크기 K 배열에 삽입 정렬, 같은 점수 차는 먼저 들어온 것이 앞선다) */
+    private static final class TopK {
+        final double[] diff;
+        final int[][]  side;
+        int count;
+
+        TopK(int k) {
+            diff = new double[k];
+            side = new int[k][];
+        }
+
+        boolean full() { return count == diff.length; }
+
+        /** 상위 K 개에 들려면 넘어야 하는 점수 차 */
+        double cutoff() { return full() ? diff[diff.length - 1] : Double.MAX_VALUE; }
+
+        /** @return 들어갔으면 true (sides 는 복사해서 보관) */
+        boolean offer(double d, int[] sides) {
+            if (d >= cutoff() - EPS) return false;
+            int at = Math.min(count, diff.length - 1);
+            while (at > 0 && d < diff[at - 1] - EPS) {
+                diff[at] = diff[at - 1];
+                side[at] = side[at - 1];
+                at--;
+            }
+            diff[at] = d;
+            side[at] = sides.clone();
+            if (count < diff.length) count++;
+            return true;
+        }
+
+        void drainTo(TopK into) {
+            for (int i = 0; i < count; i++) into.offer(diff[i], side[i]);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.balance.service;
+
+import java.util.Arrays;
+
+/**
+ * k×k 최소 비용 배정 (헝가리안 알고리즘, 포텐셜 방식 O(k³)).
+ * 한 인스턴스가 scratch 배열을 재사용하므로 스레드 간에 공유하지 않는다.
+ */
+final class HungarianAssignment {
+
+    private final int k;
+    private final double[] u, v, minv;
+    private final int[] p, way;
+    private final boolean[] used;
+
+    HungarianAssignment(int k) {
+        this.k = k;
+        u    = new double[k + 1];
+        v    = new double[k + 1];
+        minv = new double[k + 1];
+        p    = new int[k + 1];
+        way  = new int[k + 1];
+        used = new boolean[k + 1];
+    }
+
+    /**
+     * @param cost  cost[row][col]
+     * @param out   out[col] = 배정된 row
+     */
+    void solve(double[][] cost, int[] out) {
+        Arrays.fill(u, 0);
+        Arrays.fill(v, 0);
+        Arrays.fill(p, 0);
+        Arrays.fill(way, 0);
+        for (int row = 1; row <= k; row++) {
+            p[0] = row;
+            int col0 = 0;
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do {
+                used[col0] = true;
+                int    row0  = p[col0], col1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int col = 1; col <= k; col++) {
+                    if (used[col]) continue;
+                    double cur = cost[row0 - 1][col - 1] - u[row0] - v[col];
+                    if (cur < minv[col]) { minv[col] = cur; way[col] = col0; }
+                    if (minv[col] < delta) { delta = minv[col]; col1 = col; }
+                }
+                for (int col = 0; col <= k; col++) {
+                    if (used[col]) { u[p[col]] += delta; v[col] -= delta; }
+                    else           { minv[col] -= delta; }
+                }
+                col0 = col1;
+            } while (p[col0] != 0);
+            do {
+                int col1 = way[col0];
+                p[col0] = p[col1];
+                col0 = col1;
+            } while (col0 != 0);
+        }
+        for (int col = 1; col <= k; col++) out[col - 1] = p[col] - 1;
+    }
+}
@@ -0,0 +1,233 @@
+package com.balance.service;
+
+/**
+ * "balance" 모드 팀/라인 배정 엔진 (팀 인원 = 라인 수 k, 로비 2k 명).
+ * 플레이어를 원시 배열(점수, 주/부 라인 ordinal, 최근 라인 비트마스크)로 인코딩하고,
+ * C(2k, k) 조합 테이블은 클래스 로딩 시 한 번만 만들어 재사용한다.
+ * 팀 안의 라인 배정은 k! 순열을 모두 보는 대신 헝가리안 알고리즘(O(k³))으로 푼다.
+ * 비용은 우선순위별 가중치를 자릿수처럼 쌓아 만든다: 라인 고정 위반 ≫ 최근 라인 중복 ≫ 주 라인 불일치 ≫ 가중 점수 손실.
+ */
+final class LaneAssignmentEngine {
+
+    /** 지원하는 최대 라인 수 (부분집합 메모가 2^(2k) 칸이므로 제한) */
+    static final int MAX_TEAM_SIZE = 8;
+
+    static final double SECONDARY_FACTOR = 0.90;
+    static final double OFF_LANE_FACTOR  = 0.80;
+
+    /** COMBOS[k] = C(2k, k) 팀1 비트마스크 (기존 combHelper 와 같은 사전순) */
+    private static final int[][] COMBOS = new int[MAX_TEAM_SIZE + 1][];
+    static {
+        for (int k = 1; k <= MAX_TEAM_SIZE; k++) COMBOS[k] = buildCombinations(2 * k, k);
+    }
+
+    private final int teamSize;
+    private final int lobbySize;
+
+    // ── 플레이어 인코딩 ──────────────────────────────────────────────────────
+    private final double[][] laneValue;
+    private final int[] primary;
+    private final int[] history;
+    private final int[] lock;
+
+    // ── 고정/분리 조건을 만족하는 팀1 비트마스크 ─────────────────────────────
+    private final boolean[] feasible;
+
+    // ── 탐색용 scratch: k인 부분집합(비트마스크)별 최적 배정 메모 ──────────────
+    private final int[] team;
+    private final double[][] cost;
+    private final int[] assigned;
+    private final HungarianAssignment hungarian;
+    private final long[]   memoAssign;   // 라인별 팀 로컬 인덱스 (4비트씩), 배정 불가면 -1
+    private final int[]    memoMatches;
+    private final double[] memoScore;
+
+    // ── 결과: 상위 K 개 분할 (좋은 순서로 정렬된 크기 K 배열) ───────────────
+    private int[]    topMask  = new int[0];
+    private int[]    topTotal = new int[0];
+    private double[] topDiff  = new double[0];
+    private int      topCount;
+
+    /**
+     * @param teamSize  라인 수 = 팀 인원 (≤ MAX_TEAM_SIZE)
+     * @param score     플레이어별 점수
+     * @param primaryL  주 라인 ordinal (없으면 -1)
+     * @param secondaryL 부 라인 ordinal (없으면 -1)
+     * @param historyL  최근 배정 라인 비트마스크 (bit i = i 번째 라인)
+     * @param lockL     고정 라인 ordinal (없으면 -1)
+     * @param constraints 사전 처리된 고정/분리 조건 (팀1 teamSize 명)
+     */
+    LaneAssignmentEngine(int teamSize, double[] score, int[] primaryL, int[] secondaryL, int[] historyL, int[] lockL,
+                         TeamConstraints constraints) {
+        this.teamSize  = teamSize;
+        this.lobbySize = teamSize * 2;
+        laneValue = new double[lobbySize][teamSize];
+        primary   = new int[lobbySize];
+        history   = new int[lobbySize];
+        lock      = new int[lobbySize];
+        feasible  = new boolean[1 << lobbySize];
+        team      = new int[teamSize];
+        cost      = new double[teamSize][teamSize];
+        assigned  = new int[teamSize];
+        hungarian = new HungarianAssignment(teamSize);
+        memoAssign  = new long[1 << lobbySize];
+        memoMatches = new int[1 << lobbySize];
+        memoScore   = new double[1 << lobbySize];
+
+        for (int p = 0; p < lobbySize; p++) {
+            double base = score[p];
+            for (int lane = 0; lane < teamSize; lane++) {
+                if (lane == primaryL[p])        laneValue[p][lane] = base;
+                else if (lane == secondaryL[p]) laneValue[p][lane] = base * SECONDARY_FACTOR;
+                else                            laneValue[p][lane] = base * OFF_LANE_FACTOR;
+            }
+            primary[p] = primaryL[p];
+            history[p] = historyL[p];
+            lock[p]    = lockL[p];
+        }
+
+        constraints.forEachSplit(mask -> feasible[mask] = true);
+    }
+
+    /**
+     * 모든 팀 분할을 평가해 상위 k 개의 서로 다른 분할을 찾는다 (팀1/팀2 를 맞바꾼 분할은 같은 것으로 본다).
+     * 우선순위: 주 라인 일치 수 합 최대 > 팀 점수 차 최소 > 먼저 찾은 분할.
+     * 팀 내 배정 우선순위: 최근 라인 중복 최소 > 주 라인 일치 최대 > 가중 점수 최대.
+     *
+     * @return 조건을 만족하는 분할이 있으면 true
+     */
+    boolean solve(int k) {
+        topMask  = new int[k];
+        topTotal = new int[k];
+        topDiff  = new double[k];
+        topCount = 0;
+
+        // 조건을 만족하는 분할의 양쪽 팀만 부분집합별 배정을 한 번씩 계산한다
+        int all = (1 << lobbySize) - 1;
+        for (int mask : COMBOS[teamSize]) {
+            if (feasible[mask] || feasible[~mask & all]) evaluateTeam(mask);
+        }
+
+        for (int mask : COMBOS[teamSize]) {
+            if (!feasible[mask]) continue;
+            int other = ~mask & all;
+            // 맞바꾼 분할도 유효하면 사전순으로 먼저 나오는 쪽(플레이어 0 이 팀1)만 본다
+            if ((mask & 1) == 0 && feasible[other]) continue;
+            if (memoAssign[mask] < 0 || memoAssign[other] < 0) continue;
+
+            int    total = memoMatches[mask] + memoMatches[other];
+            double diff  = Math.abs(memoScore[mask] - memoScore[other]);
+            offer(mask, total, diff);
+        }
+        return topCount > 0;
+    }
+
+    /** 찾은 분할 수 (≤ k) */
+    int splitCount() { return topCount; }
+
+    /** i 번째 분할의 라인 순서대로 팀1 플레이어 인덱스 */
+    int[] team1ByLane(int i) { return byLane(topMask[i]); }
+    /** i 번째 분할의 라인 순서대로 팀2 플레이어 인덱스 */
+    int[] team2ByLane(int i) { return byLane(~topMask[i] & ((1 << lobbySize) - 1)); }
+    double team1Score(int i) { return memoScore[topMask[i]]; }
+    double team2Score(int i) { return memoScore[~topMask[i] & ((1 << lobbySize) - 1)]; }
+
+    /** 상위 k 배열에 삽입 정렬. 동점이면 먼저 들어온 분할이 앞선다 */
+    private void offer(int mask, int total, double diff) {
+        int k = topMask.length;
+        int at = topCount;
+        while (at > 0 && (total > topTotal[at - 1] || (total == topTotal[at - 1] && diff < topDiff[at - 1]))) at--;
+        if (at >= k) return;
+        int last = Math.min(topCount, k - 1);
+        for (int i = last; i > at; i--) {
+            topMask[i]  = topMask[i - 1];
+            topTotal[i] = topTotal[i - 1];
+            topDiff[i]  = topDiff[i - 1];
+        }
+        topMask[at]  = mask;
+        topTotal[at] = total;
+        topDiff[at]  = diff;
+        if (topCount < k) topCount++;
+    }
+
+    /**
+     * 팀 비트마스크의 최적 라인 배정을 메모에 기록한다 (배정 불가 시 memoAssign = -1).
+     * 우선순위: 최근 라인 중복 최소 > 주 라인 일치 최대 > 가중 점수 최대.
+     * 각 단계의 가중치는 아래 단계 합이 가질 수 있는 폭보다 크게 잡아 사전식 순서를 그대로 보존한다.
+     */
+    private void evaluateTeam(int mask) {
+        members(mask, team);
+
+        // 점수 단계: 플레이어별 최대 가치 대비 손실 (0 이상), 그 합의 폭보다 큰 값이 주 라인 단계 가중치
+        double spread = 0;
+        for (int i = 0; i < teamSize; i++) {
+            double[] v = laneValue[team[i]];
+            double max = v[0], min = v[0];
+            for (int lane = 1; lane < teamSize; lane++) { max = Math.max(max, v[lane]); min = Math.min(min, v[lane]); }
+            spread += max - min;
+        }
+        double wPrimary  = spread + 1;
+        double wConflict = (teamSize + 1) * wPrimary;
+        double wLock     = (teamSize + 1) * wConflict;
+
+        for (int i = 0; i < teamSize; i++) {
+            int p = team[i];
+            double max = Double.NEGATIVE_INFINITY;
+            for (int lane = 0; lane < teamSize; lane++) max = Math.max(max, laneValue[p][lane]);
+            for (int lane = 0; lane < teamSize; lane++) {
+                double c = max - laneValue[p][lane];
+                if (primary[p] != lane)              c += wPrimary;
+                if ((history[p] & (1 << lane)) != 0) c += wConflict;
+                if (lock[p] >= 0 && lock[p] != lane) c += wLock;
+                cost[i][lane] = c;
+            }
+        }
+        hungarian.solve(cost, assigned);
+
+        // 점수는 라인 순서대로 더한다 (기존 순열 탐색과 같은 합산 순서)
+        long   packed = 0;
+        int    m      = 0;
+        double score  = 0;
+        for (int lane = 0; lane < teamSize; lane++) {
+            int p = team[assigned[lane]];
+            if (lock[p] >= 0 && lock[p] != lane) { packed = -1; break; }
+            score  += laneValue[p][lane];
+            if (primary[p] == lane) m++;
+            packed |= (long) assigned[lane] << (4 * lane);
+        }
+        memoAssign[mask]  = packed;
+        memoMatches[mask] = packed < 0 ? -1 : m;
+        memoScore[mask]   = packed < 0 ? 0 : score;
+    }
+
+    private int[] byLane(int mask) {
+        int[] out = new int[teamSize];
+        members(mask, team);
+        long packed = memoAssign[mask];
+        for (int lane = 0; lane < teamSize; lane++) out[lane] = team[(int) (packed >>> (4 * lane)) & 0xF];
+        return out;
+    }
+
+    /** 비트마스크의 플레이어 인덱스를 오름차순으로 (팀 로컬 인덱스 순서) */
+    private void members(int mask, int[] out) {
+        int k = 0;
+        for (int p = 0; p < lobbySize; p++) {
+            if ((mask & (1 << p)) != 0) out[k++] = p;
+        }
+    }
+
+    private static int[] buildCombinations(int n, int r) {
+        long count = 1;
+        for (int i = 1; i <= r; i++) count = count * (n - r + i) / i;
+        int[] result = new int[(int) count];
+        combHelper(0, n, r, 0, 0, result, new int[1]);
+        return result;
+    }
+
+    private static void combHelper(int start, int n, int r, int size, int mask, int[] result, int[] count) {
+        if (size == r) { result[count[0]++] = mask; return; }
+        for (int i = start; i < n; i++) {
+            combHelper(i + 1, n, r, size + 1, mask | (1 << i), result, count);
+        }
+    }
+}
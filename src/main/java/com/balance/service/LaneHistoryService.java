@@ -1,15 +1,19 @@
 package com.balance.service;
 
-import com.balance.entity.LaneHistoryEntity;
+import com.balance.entity.LaneGameEntity;
+import com.balance.repository.LaneGameRepository;
 import com.balance.repository.LaneHistoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class LaneHistoryService {
@@ -17,40 +21,118 @@ public class LaneHistoryService {
     @Autowired
     private LaneHistoryRepository repo;
 
+    @Autowired
+    private LaneGameRepository gameRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     /**
      * 당일 최근 N판 라인 이력을 조회.
      * key: displayName, value: 최근 배정된 라인 목록 (최신순)
      */
     public Map<String, List<String>> getRecentHistory(List<String> displayNames, int recentCount) {
-        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
         Map<String, List<String>> result = new HashMap<>();
+        // DB 비교가 대소문자를 무시하므로, 돌아온 이름을 요청한 이름으로 되돌릴 때도 소문자로 맞춘다
+        Map<String, List<String>> byKey = new HashMap<>();
         for (String name : displayNames) {
-            List<LaneHistoryEntity> history = repo.findRecentByDisplayNameAndDate(name, todayStart);
-            List<String> lanes = history.stream()
-                .limit(recentCount)
-                .map(LaneHistoryEntity::getAssignedLane)
-                .collect(Collectors.toList());
+            List<String> lanes = byKey.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new ArrayList<>());
             result.put(name, lanes);
         }
+        if (result.isEmpty() || recentCount <= 0) return result;
+
+        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
+        for (LaneHistoryRepository.RecentLane row
+                : repo.findRecentByDisplayNames(result.keySet(), todayStart, recentCount)) {
+            List<String> lanes = byKey.get(row.getDisplayName().toLowerCase(Locale.ROOT));
+            if (lanes != null) lanes.add(row.getAssignedLane());
+        }
         return result;
     }
 
+    /**
+     * 당일 전체 이력을 세션 일정 계산용으로 모은다.
+     * lanes: displayName → 오늘 배정된 라인 목록 (최신순)
+     * teammates: displayName → (같은 팀이었던 요청 플레이어 → 횟수). 팀 정보가 없는 예전 이력은 제외
+     */
+    public SessionHistory getSessionHistory(List<String> displayNames) {
+        Map<String, List<String>> lanes = new HashMap<>();
+        Map<String, Map<String, Integer>> teammates = new HashMap<>();
+        Map<String, String> byKey = new HashMap<>();
+        for (String name : displayNames) {
+            byKey.putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+            lanes.put(name, new ArrayList<>());
+            teammates.put(name, new HashMap<>());
+        }
+        if (byKey.isEmpty()) return new SessionHistory(lanes, teammates);
+
+        // 게임별 (요청 이름, 팀 번호) 목록 — 행은 최신 게임순
+        Map<Integer, List<String[]>> games = new LinkedHashMap<>();
+        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
+        for (LaneHistoryRepository.SessionRow row
+                : repo.findSessionByDisplayNames(byKey.values(), todayStart)) {
+            String name = byKey.get(row.getDisplayName().toLowerCase(Locale.ROOT));
+            if (name == null) continue;
+            lanes.get(name).add(row.getAssignedLane());
+            if (row.getTeamNo() != null) {
+                games.computeIfAbsent(row.getGameNumber(), k -> new ArrayList<>())
+                     .add(new String[]{ name, row.getTeamNo().toString() });
+            }
+        }
+        for (List<String[]> game : games.values()) {
+            for (String[] a : game) {
+                for (String[] b : game) {
+                    if (a != b && a[1].equals(b[1]) && !a[0].equals(b[0])) {
+                        teammates.get(a[0]).merge(b[0], 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        // 같은 이름이 대소문자만 달리 여러 번 요청된 경우 같은 목록을 공유
+        for (String name : displayNames) {
+            String canonical = byKey.get(name.toLowerCase(Locale.ROOT));
+            lanes.put(name, lanes.get(canonical));
+            teammates.put(name, teammates.get(canonical));
+        }
+        return new SessionHistory(lanes, teammates);
+    }
+
+    public record SessionHistory(Map<String, List<String>> lanes, Map<String, Map<String, Integer>> teammates) {}
+
     /**
      * 한 판의 라인 배정 결과를 저장.
+     * 게임 번호는 lane_games 의 AUTO_INCREMENT 로 받아 동시 저장에도 겹치지 않고,
+     * 라인 이력은 JDBC 배치 한 번으로 넣는다.
+     *
+     * @param teams displayName → 팀 번호 (1/2). 없는 이름은 null 로 저장
      */
     @Transactional
-    public void saveGameResult(Map<String, String> assignments) {
-        int nextGame = repo.findMaxGameNumber() + 1;
+    public void saveGameResult(Map<String, String> assignments, Map<String, Integer> teams) {
         LocalDateTime now = LocalDateTime.now();
 
+        LaneGameEntity game = new LaneGameEntity();
+        game.setPlayerCount(assignments.size());
+        game.setCreatedAt(now);
+        long gameNumber = gameRepo.save(game).getId();
+
+        Timestamp createdAt = Timestamp.valueOf(now);
+        List<Object[]> rows = new ArrayList<>();
         for (Map.Entry<String, String> entry : assignments.entrySet()) {
-            LaneHistoryEntity e = new LaneHistoryEntity();
-            e.setDisplayName(entry.getKey());
-            e.setAssignedLane(entry.getValue());
-            e.setGameNumber(nextGame);
-            e.setCreatedAt(now);
-            repo.save(e);
+            rows.add(new Object[]{ entry.getKey(), entry.getValue(), gameNumber, teams.get(entry.getKey()), createdAt });
         }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO lane_history (display_name, assigned_lane, game_number, team_no, created_at) VALUES (?, ?, ?, ?, ?)",
+            rows);
+    }
+
+    /**
+     * lane_games 도입 이전 이력이 있으면, 다음 게임 번호가 기존 최대값 뒤에서 시작하도록 기준 행을 넣는다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedGameNumbers() {
+        if (gameRepo.count() > 0) return;
+        int maxGame = repo.findMaxGameNumber();
+        if (maxGame > 0) gameRepo.insertSeed(maxGame, LocalDateTime.now());
     }
 
     /**
@@ -0,0 +1,30 @@
+package com.balance.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 팀 구성 요청의 플레이어 한 명에서 계산에 쓰는 필드만 뽑은 읽기 전용 뷰.
+ * 응답은 클라이언트가 보낸 프로필을 그대로 돌려줘야 하므로 요청은 Map 으로 받고, 타입 확인은 요청마다 여기서 한 번만 한다.
+ */
+record LobbyPlayer(String displayName, double score, String primaryLane, String secondaryLane) {
+
+    static LobbyPlayer of(Map<String, Object> player) {
+        return new LobbyPlayer(
+            text(player.get("displayName")),
+            player.get("score") instanceof Number n ? n.doubleValue() : 0.0,
+            text(player.get("primaryLane")),
+            text(player.get("secondaryLane")));
+    }
+
+    static List<LobbyPlayer> of(List<Map<String, Object>> players) {
+        List<LobbyPlayer> lobby = new ArrayList<>(players.size());
+        for (Map<String, Object> p : players) lobby.add(of(p));
+        return lobby;
+    }
+
+    private static String text(Object v) {
+        return v instanceof String s ? s : "";
+    }
+}
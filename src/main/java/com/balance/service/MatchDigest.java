@@ -0,0 +1,165 @@
+package com.balance.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 매치 상세(match-v5) 문서에서 전적 집계에 쓰는 필드만 뽑은 것.
+ * 문서 전체를 JsonNode 트리로 만들지 않고 JsonParser 로 한 번 훑으며, 필요 없는 값은 skipChildren 으로 건너뛴다.
+ * 값 변환은 JsonNode.path(..).asText / asInt / asBoolean 의 기본값 규칙과 같게 맞춘다.
+ */
+record MatchDigest(int queueId, String gameType, int gameDuration, List<Participant> participants) {
+
+    /** championName 은 없으면 null (본인 요약은 "Unknown", 사설 참가자 목록은 빈 문자열로 채운다) */
+    record Participant(String puuid, int participantId, String championName, String teamPosition, int teamId,
+                       boolean win, int kills, int deaths, int assists, int[] items,
+                       String riotIdGameName, String riotIdTagline) {}
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final int ITEM_SLOTS = 7;
+
+    /** info 가 없는 문서는 참가자 없는 빈 요약 (트리로 읽을 때 건너뛰던 것과 같은 결과) */
+    static MatchDigest read(byte[] json) throws IOException {
+        try (JsonParser p = JSON.createParser(json)) {
+            return read(p);
+        }
+    }
+
+    static MatchDigest read(String json) throws IOException {
+        try (JsonParser p = JSON.createParser(json)) {
+            return read(p);
+        }
+    }
+
+    private static MatchDigest read(JsonParser p) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("매치 문서가 객체가 아닙니다");
+        MatchDigest digest = new MatchDigest(-1, "", 0, List.of());
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if ("info".equals(field)) digest = readInfo(p);
+            else                      p.skipChildren();
+        }
+        return digest;
+    }
+
+    private static MatchDigest readInfo(JsonParser p) throws IOException {
+        int queueId = -1, gameDuration = 0;
+        String gameType = "";
+        List<Participant> participants = new ArrayList<>(10);
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return new MatchDigest(queueId, gameType, gameDuration, participants);
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "queueId"      -> queueId      = asInt(p, -1);
+                case "gameType"     -> gameType     = asText(p, "");
+                case "gameDuration" -> gameDuration = asInt(p, 0);
+                case "participants" -> {
+                    participants.clear();
+                    if (p.currentToken() != JsonToken.START_ARRAY) { p.skipChildren(); break; }
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        if (p.currentToken() == JsonToken.START_OBJECT) participants.add(readParticipant(p));
+                        else p.skipChildren();
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        return new MatchDigest(queueId, gameType, gameDuration, List.copyOf(participants));
+    }
+
+    private static Participant readParticipant(JsonParser p) throws IOException {
+        String puuid = "", championName = null, teamPosition = "", gameName = "", tagline = "";
+        int participantId = 0, teamId = 0, kills = 0, deaths = 0, assists = 0;
+        boolean win = false;
+        int[] items = new int[ITEM_SLOTS];
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "puuid"          -> puuid         = asText(p, "");
+                case "participantId"  -> participantId = asInt(p, 0);
+                case "championName"   -> championName  = asText(p, null);
+                case "teamPosition"   -> teamPosition  = asText(p, "");
+                case "teamId"         -> teamId        = asInt(p, 0);
+                case "win"            -> win           = asBoolean(p, false);
+                case "kills"          -> kills         = asInt(p, 0);
+                case "deaths"         -> deaths        = asInt(p, 0);
+                case "assists"        -> assists       = asInt(p, 0);
+                case "riotIdGameName" -> gameName      = asText(p, "");
+                case "riotIdTagline"  -> tagline       = asText(p, "");
+                default -> {
+                    // item0 ~ item6
+                    if (field.length() == 5 && field.startsWith("item")) {
+                        int slot = field.charAt(4) - '0';
+                        if (slot >= 0 && slot < ITEM_SLOTS) { items[slot] = asInt(p, 0); break; }
+                    }
+                    p.skipChildren();
+                }
+            }
+        }
+        return new Participant(puuid, participantId, championName, teamPosition, teamId,
+            win, kills, deaths, assists, items, gameName, tagline);
+    }
+
+    // ── JsonNode.asXxx(default) 와 같은 변환 ─────────────────────────────────
+    private static String asText(JsonParser p, String def) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_STRING, VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_TRUE, VALUE_FALSE -> p.getText();
+            case START_OBJECT, START_ARRAY -> { p.skipChildren(); yield ""; }
+            default -> def;
+        };
+    }
+
+    private static int asInt(JsonParser p, int def) throws IOException {
+        switch (p.currentToken()) {
+            case VALUE_NUMBER_INT:   return (int) p.getLongValue();
+            case VALUE_NUMBER_FLOAT: return (int) p.getDoubleValue();
+            case VALUE_TRUE:         return 1;
+            case VALUE_FALSE:        return 0;
+            case VALUE_STRING: {
+                String s = p.getText().trim();
+                try {
+                    return Integer.parseInt(s);
+                } catch (NumberFormatException e) {
+                    try { return (int) Double.parseDouble(s); } catch (NumberFormatException e2) { return def; }
+                }
+            }
+            case START_OBJECT:
+            case START_ARRAY:
+                p.skipChildren();
+                return def;
+            default:
+                return def;
+        }
+    }
+
+    private static boolean asBoolean(JsonParser p, boolean def) throws IOException {
+        switch (p.currentToken()) {
+            case VALUE_TRUE:         return true;
+            case VALUE_FALSE:        return false;
+            case VALUE_NUMBER_INT:   return p.getLongValue() != 0;
+            case VALUE_STRING: {
+                String s = p.getText().trim();
+                if ("true".equals(s))  return true;
+                if ("false".equals(s)) return false;
+                return def;
+            }
+            case START_OBJECT:
+            case START_ARRAY:
+                p.skipChildren();
+                return def;
+            default:
+                return def;
+        }
+    }
+}
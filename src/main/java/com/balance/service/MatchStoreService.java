@@ -0,0 +1,114 @@
+package com.balance.service;
+
+import com.balance.entity.MatchDocumentEntity;
+import com.balance.repository.MatchDocumentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 매치/타임라인 원문 저장소.
+ * 종료된 게임의 문서는 바뀌지 않으므로 한 번 받은 문서는 Riot 에 다시 요청하지 않는다.
+ * 저장 개수가 riot.match-store.max-entries 를 넘으면 오래된 문서부터 상한의 90% 까지 지운다.
+ * 개수는 처음 한 번만 COUNT 로 세고 이후에는 저장/삭제 건수로 따라간다 (정리 중 오류가 나면 다음에 다시 센다).
+ * 캐시일 뿐이므로 저장·정리 실패는 로그만 남기고 호출한 쪽 조회를 실패시키지 않는다.
+ */
+@Service
+public class MatchStoreService {
+
+    @Autowired
+    private MatchDocumentRepository repository;
+
+    @Value("${riot.match-store.max-entries:5000}")
+    private int maxEntries;
+
+    /** 저장된 문서 수 추정치 (-1 = 아직 모름) */
+    private final AtomicLong storedCount = new AtomicLong(-1);
+
+    // ── 단건 조회 ────────────────────────────────────────────────────────────
+    public Optional<byte[]> findRaw(String matchId, String kind) {
+        return Optional.ofNullable(findAllRaw(List.of(matchId), kind).get(matchId));
+    }
+
+    /** 압축을 푼 JSON 원문 그대로 (스트리밍 파서로 필요한 필드만 읽는 쪽에서 쓴다) */
+    public Map<String, byte[]> findAllRaw(Collection<String> matchIds, String kind) {
+        Map<String, byte[]> result = new HashMap<>();
+        if (matchIds.isEmpty()) return result;
+        try {
+            for (MatchDocumentEntity e : repository.findByMatchIdInAndKind(matchIds, kind)) {
+                byte[] raw = decode(e);
+                if (raw != null) result.put(e.getMatchId(), raw);
+            }
+        } catch (Exception e) {
+            System.out.println("[MatchStore] 조회 실패: " + e.getMessage());
+        }
+        return result;
+    }
+
+    public void saveRaw(String matchId, String kind, byte[] raw) {
+        saveAllRaw(Map.of(matchId, raw), kind);
+    }
+
+    // ── 새로 받은 문서(JSON 원문) 저장 후 용량 초과분 정리 ────────────────────
+    public void saveAllRaw(Map<String, byte[]> docs, String kind) {
+        if (docs.isEmpty()) return;
+        LocalDateTime now = LocalDateTime.now();
+        List<MatchDocumentEntity> entities = new ArrayList<>();
+        for (Map.Entry<String, byte[]> d : docs.entrySet()) {
+            try {
+                byte[] raw = d.getValue();
+                MatchDocumentEntity e = new MatchDocumentEntity();
+                e.setMatchId(d.getKey());
+                e.setKind(kind);
+                e.setBody(Deflate.deflate(raw));
+                e.setRawSize(raw.length);
+                e.setCreatedAt(now);
+                entities.add(e);
+            } catch (Exception ex) {
+                System.out.println("[MatchStore] 압축 실패 " + d.getKey() + ": " + ex.getMessage());
+            }
+        }
+        int inserted = 0;
+        for (MatchDocumentEntity e : entities) {
+            try {
+                repository.save(e);
+                inserted++;
+            } catch (Exception ex) {
+                // 다른 요청이 같은 매치를 먼저 저장한 경우 등 — 캐시일 뿐이므로 무시
+                System.out.println("[MatchStore] 저장 실패 " + e.getMatchId() + ": " + ex.getMessage());
+            }
+        }
+        if (inserted > 0) prune(inserted);
+    }
+
+    private void prune(int inserted) {
+        try {
+            long count = storedCount.get() < 0 ? resetCount() : storedCount.addAndGet(inserted);
+            if (count <= maxEntries) return;
+            long target = maxEntries - maxEntries / 10;
+            int deleted = repository.deleteOldest((int) (count - target));
+            storedCount.addAndGet(-deleted);
+        } catch (Exception e) {
+            storedCount.set(-1);
+            System.out.println("[MatchStore] 정리 실패: " + e.getMessage());
+        }
+    }
+
+    private long resetCount() {
+        long count = repository.count();
+        storedCount.set(count);
+        return count;
+    }
+
+    private static byte[] decode(MatchDocumentEntity e) {
+        try {
+            return Deflate.inflate(e.getBody(), 0, e.getRawSize());
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+}
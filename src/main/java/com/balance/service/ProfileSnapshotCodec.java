@@ -0,0 +1,295 @@
+package com.balance.service;
+
+import com.balance.model.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.DataFormatException;
+
+/**
+ * summoners.data_blob 저장용 PlayerProfile 바이너리 인코딩.
+ * <pre>
+ * [0] 'P'  [1] 버전  [2] 플래그(bit0 = deflate)  [3..] 본문 (deflate 면 varint 원본 길이 + 압축 본문)
+ * </pre>
+ * 본문은 record 필드 순서 그대로 쓴다: 정수는 zigzag varint, 실수는 8바이트, 문자열은 스냅샷 안 문자열 표 참조
+ * (챔피언 이름/이미지 URL/라인처럼 반복되는 값은 두 번째부터 인덱스만 쓴다).
+ * 필드를 바꾸면 VERSION 을 올리고 이전 버전 읽기를 남겨 둔다 (v1: puuid 없음). fromCache / cachedAt / stale 은 저장하지 않는다.
+ */
+final class ProfileSnapshotCodec {
+
+    private static final byte MAGIC   = 'P';
+    private static final byte VERSION = 2;
+    private static final int  FLAG_DEFLATE = 1;
+    private static final int  HEADER = 3;
+
+    private ProfileSnapshotCodec() {}
+
+    static byte[] encode(PlayerProfile p, boolean compress) {
+        Writer w = new Writer();
+        w.str(p.displayName()); w.str(p.gameName()); w.str(p.tagLine()); w.str(p.puuid());
+        w.num(p.level());
+        w.str(p.iconUrl());
+        w.rank(p.highestRank()); w.rank(p.solo()); w.rank(p.flex());
+        w.str(p.primaryLane()); w.str(p.secondaryLane()); w.str(p.primaryLaneKo());
+        w.num(p.primaryLaneWr());
+        w.num(p.laneStats().size());
+        for (Map.Entry<String, LaneStat> e : p.laneStats().entrySet()) {
+            LaneStat s = e.getValue();
+            w.str(e.getKey()); w.num(s.w()); w.num(s.l()); w.num(s.n());
+        }
+        w.num(p.laneCounts().size());
+        for (Map.Entry<String, Integer> e : p.laneCounts().entrySet()) {
+            w.str(e.getKey()); w.num(e.getValue());
+        }
+        w.num(p.score());
+        w.num(p.topChamps().size());
+        for (MasteryChamp c : p.topChamps()) {
+            w.str(c.name()); w.str(c.imgUrl()); w.num(c.level()); w.num(c.points());
+        }
+        w.champs(p.seasonMost());
+        w.matches(p.recentMatches());
+        w.num(p.totalMatches());
+        w.matches(p.customMatches());
+        w.champs(p.customMost());
+        w.num(p.customWins()); w.num(p.customLosses()); w.num(p.customTotal()); w.num(p.customScore());
+
+        byte[] body = w.toByteArray();
+        Writer out = new Writer();
+        out.raw(MAGIC); out.raw(VERSION); out.raw(compress ? FLAG_DEFLATE : 0);
+        if (!compress) {
+            out.raw(body);
+        } else {
+            out.num(body.length);
+            out.raw(Deflate.deflate(body));
+        }
+        return out.toByteArray();
+    }
+
+    static PlayerProfile decode(byte[] data) throws IOException {
+        if (data.length < HEADER || data[0] != MAGIC) throw new IOException("소환사 스냅샷 형식이 아닙니다");
+        int version = data[1];
+        if (version < 1 || version > VERSION) throw new IOException("지원하지 않는 스냅샷 버전: " + version);
+
+        Reader r;
+        if ((data[2] & FLAG_DEFLATE) == 0) {
+            r = new Reader(data, HEADER);
+        } else {
+            Reader head = new Reader(data, HEADER);
+            int rawSize = head.num();
+            if (rawSize < 0) throw new IOException("잘못된 원본 길이: " + rawSize);
+            try {
+                r = new Reader(Deflate.inflate(data, head.pos, rawSize), 0);
+            } catch (DataFormatException e) {
+                throw new IOException("스냅샷 압축을 풀 수 없습니다", e);
+            }
+        }
+
+        String displayName = r.str(), gameName = r.str(), tagLine = r.str();
+        String puuid = version >= 2 ? r.str() : null;
+        int level = r.num();
+        String iconUrl = r.str();
+        RankEntry highest = r.rank(), solo = r.rank(), flex = r.rank();
+        String primary = r.str(), secondary = r.str(), primaryKo = r.str();
+        int primaryWr = r.num();
+        int n = r.num();
+        Map<String, LaneStat> laneStats = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) laneStats.put(r.str(), new LaneStat(r.num(), r.num(), r.num()));
+        n = r.num();
+        Map<String, Integer> laneCounts = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) laneCounts.put(r.str(), r.num());
+        int score = r.num();
+        n = r.num();
+        List<MasteryChamp> topChamps = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) topChamps.add(new MasteryChamp(r.str(), r.str(), r.num(), r.num()));
+        List<ChampStat> seasonMost = r.champs();
+        List<MatchSummary> recent  = r.matches();
+        int totalMatches = r.num();
+        List<MatchSummary> customs = r.matches();
+        List<ChampStat> customMost = r.champs();
+
+        return new PlayerProfile(displayName, gameName, tagLine, puuid, level, iconUrl, highest, solo, flex,
+            primary, secondary, primaryKo, primaryWr, laneStats, laneCounts, score,
+            topChamps, seasonMost, recent, totalMatches, customs, customMost,
+            r.num(), r.num(), r.num(), r.num(), null, null, null);
+    }
+
+    /** 저장된 값이 deflate 로 압축돼 있는지 (설정이 바뀌었는지 판단용) */
+    static boolean isCompressed(byte[] data) {
+        return data.length >= HEADER && (data[2] & FLAG_DEFLATE) != 0;
+    }
+
+    /** 압축 해제 기준 본문 크기 (L1 캐시 용량 계산용) */
+    static int bodySize(byte[] data) throws IOException {
+        if (!isCompressed(data)) return data.length - HEADER;
+        return new Reader(data, HEADER).num();
+    }
+
+    // ── 쓰기 ─────────────────────────────────────────────────────────────────
+    private static final class Writer {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        void raw(int b)      { out.write(b); }
+        void raw(byte[] b)   { out.write(b, 0, b.length); }
+        byte[] toByteArray() { return out.toByteArray(); }
+
+        void num(int v) { uvar((v << 1) ^ (v >> 31)); }
+
+        void dbl(double v) {
+            long bits = Double.doubleToRawLongBits(v);
+            for (int s = 56; s >= 0; s -= 8) out.write((int) (bits >>> s));
+        }
+
+        /** 0 = null, 홀수 = 표 인덱스 참조, 짝수 = 새 문자열 (길이 + 1) */
+        void str(String s) {
+            if (s == null) { uvar(0); return; }
+            Integer ref = strings.get(s);
+            if (ref != null) { uvar((ref << 1) | 1); return; }
+            strings.put(s, strings.size());
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            uvar((b.length + 1) << 1);
+            raw(b);
+        }
+
+        void rank(RankEntry e) {
+            if (e == null) { raw(0); return; }
+            raw(1);
+            str(e.tier()); str(e.rank()); num(e.lp()); num(e.wins()); num(e.losses());
+            dbl(e.winRate()); num(e.score()); str(e.queueType());
+        }
+
+        void champs(List<ChampStat> list) {
+            num(list.size());
+            for (ChampStat c : list) {
+                str(c.name()); num(c.games()); num(c.winRate()); dbl(c.kda()); str(c.imgUrl());
+            }
+        }
+
+        void matches(List<MatchSummary> list) {
+            num(list.size());
+            for (MatchSummary m : list) {
+                str(m.matchId()); num(m.participantId()); str(m.champion()); raw(m.win() ? 1 : 0);
+                num(m.kills()); num(m.deaths()); num(m.assists()); dbl(m.kda());
+                str(m.lane()); str(m.duration()); num(m.durationSec());
+                num(m.items().size());
+                for (Integer item : m.items()) num(item);
+                // participants 는 사설 게임에만 있으므로 null 과 빈 목록을 구분한다 (0 = null)
+                if (m.participants() == null) { uvar(0); continue; }
+                uvar(m.participants().size() + 1);
+                for (MatchParticipant mp : m.participants()) {
+                    str(mp.gameName()); str(mp.tagLine()); str(mp.champion()); num(mp.team());
+                    num(mp.kills()); num(mp.deaths()); num(mp.assists()); raw(mp.win() ? 1 : 0);
+                }
+            }
+        }
+
+        private void uvar(int v) {
+            while ((v & ~0x7F) != 0) {
+                out.write((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            out.write(v);
+        }
+    }
+
+    // ── 읽기 ─────────────────────────────────────────────────────────────────
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+        private final List<String> strings = new ArrayList<>();
+
+        Reader(byte[] buf, int pos) { this.buf = buf; this.pos = pos; }
+
+        int num() throws IOException {
+            int v = uvar();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        boolean bool() throws IOException { return u8() != 0; }
+
+        double dbl() throws IOException {
+            if (pos + 8 > buf.length) throw truncated();
+            long bits = 0;
+            for (int i = 0; i < 8; i++) bits = (bits << 8) | (buf[pos++] & 0xFF);
+            return Double.longBitsToDouble(bits);
+        }
+
+        String str() throws IOException {
+            int tag = uvar();
+            if (tag == 0) return null;
+            if ((tag & 1) != 0) {
+                int ref = tag >>> 1;
+                if (ref >= strings.size()) throw new IOException("잘못된 문자열 참조: " + ref);
+                return strings.get(ref);
+            }
+            int len = (tag >>> 1) - 1;
+            if (len < 0 || pos + len > buf.length) throw truncated();
+            String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            strings.add(s);
+            return s;
+        }
+
+        RankEntry rank() throws IOException {
+            if (!bool()) return null;
+            return new RankEntry(str(), str(), num(), num(), num(), dbl(), num(), str());
+        }
+
+        List<ChampStat> champs() throws IOException {
+            int n = num();
+            List<ChampStat> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) list.add(new ChampStat(str(), num(), num(), dbl(), str()));
+            return list;
+        }
+
+        List<MatchSummary> matches() throws IOException {
+            int n = num();
+            List<MatchSummary> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                String matchId = str();
+                int participantId = num();
+                String champion = str();
+                boolean win = bool();
+                int kills = num(), deaths = num(), assists = num();
+                double kda = dbl();
+                String lane = str(), duration = str();
+                int durationSec = num();
+                int itemCount = num();
+                List<Integer> items = new ArrayList<>(itemCount);
+                for (int j = 0; j < itemCount; j++) items.add(num());
+                List<MatchParticipant> participants = null;
+                int pc = uvar();
+                if (pc > 0) {
+                    participants = new ArrayList<>(pc - 1);
+                    for (int j = 1; j < pc; j++) {
+                        participants.add(new MatchParticipant(str(), str(), str(), num(), num(), num(), num(), bool()));
+                    }
+                }
+                list.add(new MatchSummary(matchId, participantId, champion, win, kills, deaths, assists, kda,
+                    lane, duration, durationSec, items, participants));
+            }
+            return list;
+        }
+
+        private int u8() throws IOException {
+            if (pos >= buf.length) throw truncated();
+            return buf[pos++] & 0xFF;
+        }
+
+        private int uvar() throws IOException {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = u8();
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IOException("잘못된 varint");
+        }
+
+        private static IOException truncated() {
+            return new IOException("스냅샷 데이터가 잘렸습니다");
+        }
+    }
+}
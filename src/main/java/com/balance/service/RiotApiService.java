@@ -1,8 +1,12 @@
 package com.balance.service;
 
+import com.balance.entity.MatchDocumentEntity;
+import com.balance.model.*;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -15,6 +19,16 @@ import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +40,28 @@ public class RiotApiService {
     @Value("${riot.id-token:}")
     private String idToken;
 
+    @Autowired
+    private RiotRateLimiter rateLimiter;
+
+    @Autowired
+    private MatchStoreService matchStore;
+
+    /** 한 번의 조회에서 동시에 보낼 매치 상세 요청 수 (개발 키 20 req/s 기준) */
+    @Value("${riot.match-fetch-concurrency:8}")
+    private int matchFetchConcurrency = 8;
+
+    /** HttpClient 응답 처리 스레드 수 (응답 뒤 이어지는 집계도 여기서 돈다 — DB 작업은 dbExecutor 로 넘긴다) */
+    @Value("${riot.http-threads:4}")
+    private int httpThreads = 4;
+
+    /** 매치 저장소·소환사 저장 같은 JPA 작업 전용 스레드 수 (커넥션 풀보다 크게 잡지 않는다) */
+    @Value("${riot.db-threads:4}")
+    private int dbThreads = 4;
+
+    /** 참가자 전원 몫 타임라인 요약을 메모리에 들고 있을 매치 수 (LRU) */
+    @Value("${riot.timeline-cache.max-entries:200}")
+    private int timelineCacheEntries = 200;
+
     public static final String KR   = "https://kr.api.riotgames.com";
     public static final String ASIA = "https://asia.api.riotgames.com";
 
@@ -43,6 +79,10 @@ public class RiotApiService {
         put("BOTTOM", "원딜"); put("UTILITY", "서포터"); put("UNKNOWN", "미정");
     }};
 
+    /** MatchSummary.lane (표시용 이름) → teamPosition. 저장된 요약으로 라인 집계를 다시 만들 때 쓴다 */
+    private static final Map<String, String> LANE_POSITION = LANE_KO.entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey));
+
     private static final Map<String, String> MONSTER_KO = new LinkedHashMap<>() {{
         put("DRAGON", "드래곤");         put("FIRE_DRAGON", "화염 드래곤");
         put("WATER_DRAGON", "바다 드래곤"); put("AIR_DRAGON", "구름 드래곤");
@@ -52,29 +92,69 @@ public class RiotApiService {
         put("HORDE", "공허 유충");
     }};
 
-    private final HttpClient httpClient;
+    private HttpClient httpClient;
+    private ExecutorService httpExecutor;
+    private ExecutorService dbExecutor;
     private final ObjectMapper objectMapper;
 
+    /** matchId → 진행 중인 매치 상세 요청 (동시 조회 간 중복 제거, 응답 원문 그대로) */
+    private final ConcurrentHashMap<String, CompletableFuture<HttpResponse<byte[]>>> matchesInFlight = new ConcurrentHashMap<>();
+
+    /** matchId → 타임라인 요약 (접근 순서, 상한 초과 시 가장 오래 안 쓴 것부터 버림) */
+    private final LinkedHashMap<String, TimelineDigest> timelines = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TimelineDigest> eldest) {
+            return size() > timelineCacheEntries;
+        }
+    };
+    /** matchId → 만들고 있는 타임라인 요약 (같은 매치의 여러 참가자를 동시에 열 때 한 번만 읽는다) */
+    private final ConcurrentHashMap<String, CompletableFuture<TimelineDigest>> timelinesInFlight = new ConcurrentHashMap<>();
+
     private String ddVersion = "15.4.1";
     private String ddBase;
     private Map<Integer, Map<String, String>> champMap = new HashMap<>();
     private Map<Integer, String> itemMap = new HashMap<>();
 
     public RiotApiService() {
-        this.httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
         this.objectMapper = new ObjectMapper();
     }
 
     @PostConstruct
     public void init() {
+        // 기본 HttpClient 는 상한 없는 캐시 풀을 쓰므로 크기를 정한 풀을 넘긴다
+        httpExecutor = Executors.newFixedThreadPool(Math.max(1, httpThreads), daemonThreads("riot-http-"));
+        dbExecutor   = Executors.newFixedThreadPool(Math.max(1, dbThreads), daemonThreads("riot-db-"));
+        httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(httpExecutor)
+            .build();
+
         try { ddVersion = fetchDdVersion(); } catch (Exception ignored) {}
         ddBase = "https://ddragon.leagueoflegends.com/cdn/" + ddVersion;
         try { champMap = fetchChampionMap(); } catch (Exception ignored) {}
         try { itemMap  = fetchItemMap();     } catch (Exception ignored) {}
     }
 
+    @PreDestroy
+    public void shutdown() {
+        httpExecutor.shutdownNow();
+        dbExecutor.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** JPA 작업을 돌릴 풀 (HttpClient 응답 스레드에서 DB 를 기다리지 않게 SummonerRefreshService 도 같이 쓴다) */
+    Executor dbExecutor() {
+        return dbExecutor;
+    }
+
     private String fetchDdVersion() throws Exception {
         HttpRequest req = HttpRequest.newBuilder()
             .uri(URI.create("https://ddragon.leagueoflegends.com/api/versions.json"))
@@ -122,40 +202,40 @@ public class RiotApiService {
     /**
      * ACS API 호출 (사설 전적 조회용) - id_token을 Authorization 헤더에 포함
      */
-    public RiotResponse acsGet(String url) throws Exception {
+    public CompletableFuture<RiotResponse> acsGetAsync(String url) {
         HttpRequest request = HttpRequest.newBuilder()
             .uri(URI.create(url))
             .header("Authorization", "Bearer " + idToken)
             .timeout(Duration.ofSeconds(10))
             .GET().build();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        int status = response.statusCode();
-        JsonNode body = null;
-        String bodyStr = response.body();
-        if (bodyStr != null && !bodyStr.isBlank()) {
-            try { body = objectMapper.readTree(bodyStr); } catch (Exception ignored) {}
-        }
-        System.out.println("[ACS] " + url + " → " + status);
-        return new RiotResponse(status, body);
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            int status = response.statusCode();
+            JsonNode body = null;
+            String bodyStr = response.body();
+            if (bodyStr != null && !bodyStr.isBlank()) {
+                try { body = objectMapper.readTree(bodyStr); } catch (Exception ignored) {}
+            }
+            System.out.println("[ACS] " + url + " → " + status);
+            return new RiotResponse(status, body);
+        });
     }
 
     /**
-     * ACS API로 사설 게임 매치 ID 목록 조회
+     * ACS API로 사설 게임 매치 ID 목록 조회. 실패해도 예외 대신 빈 목록으로 끝난다
      * @param summonerId 소환사의 numeric ID (PVPNET_ID_KR)
      * @param count 가져올 매치 수
      * @return 사설 게임 매치 ID 리스트 (KR_ 접두사 포함)
      */
-    public List<String> fetchCustomMatchIds(long summonerId, int count) {
-        List<String> matchIds = new ArrayList<>();
+    public CompletableFuture<List<String>> fetchCustomMatchIdsAsync(long summonerId, int count) {
         if (idToken == null || idToken.isBlank()) {
             System.out.println("[ACS] id_token이 설정되지 않아 사설 전적 조회를 건너뜁니다.");
-            return matchIds;
+            return CompletableFuture.completedFuture(new ArrayList<>());
         }
-        try {
-            String url = ACS + "/v1/stats/player_history/KR/" + summonerId
-                + "?begIndex=0&endIndex=" + count + "&queue=0";
-            RiotResponse resp = acsGet(url);
+        String url = ACS + "/v1/stats/player_history/KR/" + summonerId
+            + "?begIndex=0&endIndex=" + count + "&queue=0";
+        return acsGetAsync(url).thenApply(resp -> {
+            List<String> matchIds = new ArrayList<>();
             if (resp.status() == 200 && resp.body() != null) {
                 JsonNode games = resp.body().path("games").path("games");
                 if (games.isArray()) {
@@ -168,50 +248,157 @@ public class RiotApiService {
                 }
                 System.out.println("[ACS] 사설 매치 " + matchIds.size() + "개 발견 (summonerId=" + summonerId + ")");
             }
+            return matchIds;
+        }).exceptionally(e -> {
+            System.out.println("[ACS] 사설 전적 조회 실패: " + rootCause(e).getMessage());
+            return new ArrayList<>();
+        });
+    }
+
+    /**
+     * Riot API 호출 (HttpClient.sendAsync).
+     * 전송 전에 RiotRateLimiter 에서 슬롯을 예약하고, 응답 헤더로 제한 값을 갱신한다.
+     * 429 응답은 스레드를 재우지 않고 Retry-After 만큼 지연 후 재시도한다 (최대 3회 전송).
+     */
+    public CompletableFuture<RiotResponse> rgetAsync(String url) {
+        return sendAsync(riotRequest(url), 0).thenApply(this::toRiotResponse);
+    }
+
+    /** 응답을 트리로 만들지 않고 원문 바이트 그대로 (매치 상세는 MatchDigest 가 스트리밍으로 읽는다) */
+    private CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest request, int attempt) {
+        String url = request.uri().toString();
+        return rateLimiter.acquire(url)
+            .thenCompose(x -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()))
+            .thenCompose(response -> {
+                rateLimiter.update(url, response.headers());
+                if (response.statusCode() == 429 && attempt < 2) {
+                    long retryAfter = rateLimiter.penalize(url, response.headers());
+                    System.out.println("[Riot] 429 " + url + " → " + retryAfter / 1_000_000 + "ms 후 재시도");
+                    Executor delayed = CompletableFuture.delayedExecutor(retryAfter, TimeUnit.NANOSECONDS);
+                    return CompletableFuture.runAsync(() -> {}, delayed)
+                        .thenCompose(x -> sendAsync(request, attempt + 1));
+                }
+                return CompletableFuture.completedFuture(response);
+            });
+    }
+
+    /**
+     * 매치 상세 조회. 저장소(MatchStoreService)에 있는 매치는 그대로 쓰고,
+     * 나머지만 최대 matchFetchConcurrency 개씩 동시에 조회한 뒤 저장한다.
+     * 문서는 트리로 만들지 않고 MatchDigest 로 필요한 필드만 뽑는다 (저장은 받은 원문 그대로).
+     * 저장소 조회·저장은 dbExecutor 에서 돈다.
+     * @return matchId → 매치 요약 (200 응답만)
+     */
+    private CompletableFuture<Map<String, MatchDigest>> fetchMatchesAsync(List<String> matchIds) {
+        if (matchIds.isEmpty()) return CompletableFuture.completedFuture(new ConcurrentHashMap<>());
+        return CompletableFuture
+            .supplyAsync(() -> matchStore.findAllRaw(matchIds, MatchDocumentEntity.KIND_MATCH), dbExecutor)
+            .thenCompose(stored -> fetchMissingMatches(matchIds, stored));
+    }
+
+    private CompletableFuture<Map<String, MatchDigest>> fetchMissingMatches(List<String> matchIds,
+                                                                          Map<String, byte[]> stored) {
+        Map<String, MatchDigest> docs = new ConcurrentHashMap<>();
+        for (Map.Entry<String, byte[]> e : stored.entrySet()) {
+            MatchDigest digest = digest(e.getValue());
+            if (digest != null) docs.put(e.getKey(), digest);
+        }
+        List<String> missing = matchIds.stream()
+            .filter(id -> !docs.containsKey(id))
+            .collect(Collectors.toList());
+        if (missing.isEmpty()) return CompletableFuture.completedFuture(docs);
+
+        Map<String, byte[]> fetched = new ConcurrentHashMap<>();
+        AtomicInteger next = new AtomicInteger();
+        int window = Math.max(1, Math.min(matchFetchConcurrency, missing.size()));
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[window];
+        for (int i = 0; i < window; i++) workers[i] = fetchNextMatch(missing, next, docs, fetched);
+        return CompletableFuture.allOf(workers).thenApplyAsync(x -> {
+            // 다른 조회가 받아 온 매치는 그쪽에서 저장하므로, 직접 받은 것만 저장
+            matchStore.saveAllRaw(fetched, MatchDocumentEntity.KIND_MATCH);
+            return docs;
+        }, dbExecutor);
+    }
+
+    /**
+     * @param docs    이번 조회에 쓰일 모든 매치
+     * @param fetched 그 중 이 조회가 직접 Riot 에서 받은 매치 원문
+     */
+    private CompletableFuture<Void> fetchNextMatch(List<String> matchIds, AtomicInteger next,
+                                                   Map<String, MatchDigest> docs, Map<String, byte[]> fetched) {
+        int i = next.getAndIncrement();
+        if (i >= matchIds.size()) return CompletableFuture.completedFuture(null);
+        String mid = matchIds.get(i);
+
+        // 동시에 진행 중인 다른 조회(일괄 새로고침 등)가 같은 매치를 받고 있으면 그 결과를 같이 쓴다
+        CompletableFuture<HttpResponse<byte[]>> mine  = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<byte[]>> other = matchesInFlight.putIfAbsent(mid, mine);
+        if (other == null) {
+            sendAsync(riotRequest(ASIA + "/lol/match/v5/matches/" + mid), 0).whenComplete((resp, err) -> {
+                matchesInFlight.remove(mid, mine);
+                if (err != null) mine.completeExceptionally(err);
+                else             mine.complete(resp);
+            });
+        }
+        return (other != null ? other : mine)
+            .thenCompose(resp -> {
+                MatchDigest digest = resp.statusCode() == 200 ? digest(resp.body()) : null;
+                if (digest != null) {
+                    docs.put(mid, digest);
+                    if (other == null) fetched.put(mid, resp.body());
+                }
+                return fetchNextMatch(matchIds, next, docs, fetched);
+            });
+    }
+
+    /** 매치 원문 → 요약 (JSON 이 아니면 null) */
+    private static MatchDigest digest(byte[] json) {
+        if (json == null || json.length == 0) return null;
+        try {
+            return MatchDigest.read(json);
         } catch (Exception e) {
-            System.out.println("[ACS] 사설 전적 조회 실패: " + e.getMessage());
+            return null;
         }
-        return matchIds;
     }
 
-    public RiotResponse rget(String url) throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
+    private HttpRequest riotRequest(String url) {
+        return HttpRequest.newBuilder()
             .uri(URI.create(url))
             .header("X-Riot-Token", apiKey)
             .timeout(Duration.ofSeconds(10))
             .GET().build();
+    }
 
-        HttpResponse<String> response = null;
-        for (int i = 0; i < 3; i++) {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 429) {
-                String retryAfter = response.headers().firstValue("Retry-After").orElse("1");
-                Thread.sleep(Long.parseLong(retryAfter) * 1000L);
-            } else {
-                break;
-            }
-        }
-
+    private RiotResponse toRiotResponse(HttpResponse<byte[]> response) {
         int status = response.statusCode();
         JsonNode body = null;
-        String bodyStr = response.body();
-        if (bodyStr != null && !bodyStr.isBlank()) {
-            try { body = objectMapper.readTree(bodyStr); } catch (Exception ignored) {}
+        byte[] raw = response.body();
+        if (raw != null && raw.length > 0) {
+            try {
+                JsonNode node = objectMapper.readTree(raw);
+                if (node != null && !node.isMissingNode()) body = node;
+            } catch (Exception ignored) {}
         }
         return new RiotResponse(status, body);
     }
 
+    /** 비동기 단계에서 감싸진 CompletionException / ExecutionException 을 벗긴 원래 예외 */
+    public static Throwable rootCause(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null)
+            e = e.getCause();
+        return e;
+    }
+
     /**
      * 언랭 플레이어의 전적 기반 추정 점수.
      * 기준: 실버4(800) ~ 골드1(1500) 범위에서 승률/KDA로 보정.
      */
-    private int estimateUnrankedScore(List<Map<String, Object>> recentMatches) {
+    private int estimateUnrankedScore(List<MatchSummary> recentMatches) {
         int wins = 0, total = recentMatches.size();
         double kdaSum = 0;
-        for (Map<String, Object> m : recentMatches) {
-            if (Boolean.TRUE.equals(m.get("win"))) wins++;
-            Object kdaObj = m.get("kda");
-            if (kdaObj instanceof Number) kdaSum += ((Number) kdaObj).doubleValue();
+        for (MatchSummary m : recentMatches) {
+            if (m.win()) wins++;
+            kdaSum += m.kda();
         }
         double winRate = total > 0 ? (double) wins / total : 0.5;
         double avgKda  = total > 0 ? kdaSum / total : 2.0;
@@ -240,242 +427,219 @@ public class RiotApiService {
         return URLEncoder.encode(s, StandardCharsets.UTF_8).replace("+", "%20");
     }
 
-    public Map<String, Object> getPlayerData(String gameName, String tagLine) throws Exception {
+    /**
+     * 소환사 조회. 모든 Riot 호출이 sendAsync 로 나가므로 기다리는 동안 스레드를 잡지 않는다.
+     * previous 가 같은 계정(puuid)의 스냅샷이면 이미 요약한 매치(recentMatches / customMatches)는
+     * 상세를 다시 받지 않고 요약을 그대로 집계한다 (새 판이 없으면 Riot 호출은 계정/소환사/랭크/매치 ID/숙련도 5건).
+     * 계정 조회로 Riot ID 를 다시 풀고, puuid 가 이전 스냅샷과 다르면(닉네임 변경 후 다른 계정이 이 ID 를 쓰는 경우 등)
+     * 이전 스냅샷은 버리고 전체 조회한다.
+     * 실패는 NotFoundException / RuntimeException 으로 끝난 future (CompletionException 에 감싸질 수 있음).
+     * @param previous 같은 소환사의 이전 스냅샷 (없으면 null → 전체 조회)
+     */
+    public CompletableFuture<PlayerProfile> getPlayerDataAsync(String gameName, String tagLine, PlayerProfile previous) {
+        return getPlayerDataAsync(gameName, tagLine, previous, false);
+    }
+
+    /**
+     * @param trustStoredPuuid true 면 이전 스냅샷의 puuid 를 그대로 믿고 계정 조회를 건너뛴다 (백그라운드 재검증용).
+     *                         Riot ID 가 다른 계정으로 옮겨 가도 알아채지 못하므로 사용자가 요청한 새로고침에는 쓰지 않는다.
+     */
+    public CompletableFuture<PlayerProfile> getPlayerDataAsync(String gameName, String tagLine, PlayerProfile previous,
+                                                               boolean trustStoredPuuid) {
+        String known = previous != null ? previous.puuid() : null;
+        if (trustStoredPuuid && known != null && !known.isEmpty()) {
+            return loadPlayerData(gameName, tagLine, known, previous);
+        }
+
         String accountUrl = ASIA + "/riot/account/v1/accounts/by-riot-id/"
             + encodePath(gameName) + "/" + encodePath(tagLine);
-        RiotResponse accountResp = rget(accountUrl);
+        return rgetAsync(accountUrl).thenCompose(accountResp -> {
+            if (accountResp.status() == 404)
+                throw new NotFoundException("소환사를 찾을 수 없습니다: " + gameName + "#" + tagLine);
+            if (accountResp.status() != 200)
+                throw new RuntimeException("Riot API 오류 " + accountResp.status());
+
+            String puuid = accountResp.body().path("puuid").asText("");
+            if (puuid.isEmpty()) throw new RuntimeException("PUUID를 찾을 수 없습니다");
+            // puuid 가 없는 옛 스냅샷은 같은 계정으로 보고 재사용한다 (요약의 주인은 저장 당시 계정 조회로 정해졌다)
+            boolean sameAccount = previous != null && (known == null || known.isEmpty() || known.equals(puuid));
+            return loadPlayerData(gameName, tagLine, puuid, sameAccount ? previous : null);
+        });
+    }
 
-        if (accountResp.status() == 404)
-            throw new NotFoundException("소환사를 찾을 수 없습니다: " + gameName + "#" + tagLine);
-        if (accountResp.status() != 200)
-            throw new RuntimeException("Riot API 오류 " + accountResp.status());
+    private CompletableFuture<PlayerProfile> loadPlayerData(String gameName, String tagLine, String puuid,
+                                                            PlayerProfile previous) {
+        // puuid 이후의 조회는 서로 독립적이므로 동시에 보낸다
+        CompletableFuture<RiotResponse> summF    = rgetAsync(KR + "/lol/summoner/v4/summoners/by-puuid/" + puuid);
+        CompletableFuture<RiotResponse> rankedF  = rgetAsync(KR + "/lol/league/v4/entries/by-puuid/" + puuid);
+        CompletableFuture<RiotResponse> idsF     = rgetAsync(
+            ASIA + "/lol/match/v5/matches/by-puuid/" + puuid + "/ids?count=20");
+        CompletableFuture<RiotResponse> masteryF = rgetAsync(
+            KR + "/lol/champion-mastery/v4/champion-masteries/by-puuid/" + puuid + "/top?count=10");
 
-        String puuid = accountResp.body().path("puuid").asText("");
-        if (puuid.isEmpty()) throw new RuntimeException("PUUID를 찾을 수 없습니다");
+        // ── 2) 사설 매치 ID (ACS API) — 위 요청들이 진행되는 동안 조회
+        // ACS에서 사설 매치 ID 가져오기 (본인 계정의 summonerId 사용)
+        // id_token의 PVPNET_ID는 로그인 계정 기준이므로, 검색 대상의 accountId로 조회
+        // ACS는 summonerId(=accountId numeric)가 필요 → summoner API의 accountId에서 추출 시도
+        int CUSTOM_LIMIT = 20;
+        CompletableFuture<List<String>> customF = CompletableFuture.completedFuture(new ArrayList<>());
+        if (idToken != null && !idToken.isBlank()) {
+            // JWT에서 PVPNET_ID 추출 (로그인 계정의 사설 전적으로 매치 ID 확보)
+            long pvpnetId = extractPvpnetIdFromToken(idToken);
+            if (pvpnetId > 0) {
+                customF = fetchCustomMatchIdsAsync(pvpnetId, CUSTOM_LIMIT);
+            }
+        }
 
-        RiotResponse summResp = rget(KR + "/lol/summoner/v4/summoners/by-puuid/" + puuid);
-        if (summResp.status() != 200) throw new RuntimeException("소환사 정보 조회 실패");
-        JsonNode summ = summResp.body();
+        CompletableFuture<List<String>> customIdsF = customF;
+        return CompletableFuture.allOf(summF, rankedF, idsF, customIdsF).thenCompose(x -> {
+            RiotResponse summResp = summF.join();
+            if (summResp.status() != 200) throw new RuntimeException("소환사 정보 조회 실패");
+            JsonNode summ = summResp.body();
+
+            RiotResponse rankedResp = rankedF.join();
+            JsonNode rankedArr = (rankedResp.status() == 200 && rankedResp.body() != null)
+                ? rankedResp.body() : objectMapper.createArrayNode();
+
+            // ── 1) 랭크/일반 매치 (Riot 공식 API)
+            List<String> matchIds = new ArrayList<>();
+            RiotResponse matchIdsResp = idsF.join();
+            if (matchIdsResp.status() == 200 && matchIdsResp.body() != null && matchIdsResp.body().isArray()) {
+                matchIdsResp.body().forEach(id -> matchIds.add(id.asText()));
+            }
+            List<String> customMatchIds = customIdsF.join();
 
-        RiotResponse rankedResp = rget(KR + "/lol/league/v4/entries/by-puuid/" + puuid);
-        JsonNode rankedArr = (rankedResp.status() == 200 && rankedResp.body() != null)
-            ? rankedResp.body() : objectMapper.createArrayNode();
+            // 랭크 + 사설 매치 상세를 한 번에 (겹치는 ID는 한 번만) 동시 조회 — 이전 스냅샷에서 요약한 매치는 제외
+            KnownMatches known = KnownMatches.of(previous);
+            Set<String> allIds = new LinkedHashSet<>();
+            for (String mid : matchIds) {
+                if (!known.ranked().containsKey(mid) && !known.custom().containsKey(mid)) allIds.add(mid);
+            }
+            for (String mid : customMatchIds) {
+                if (!known.custom().containsKey(mid)) allIds.add(mid);
+            }
 
-        JsonNode solo = null, flex = null;
-        for (JsonNode entry : rankedArr) {
-            String queueType = entry.path("queueType").asText();
-            if ("RANKED_SOLO_5x5".equals(queueType)) solo = entry;
-            if ("RANKED_FLEX_SR".equals(queueType))  flex = entry;
+            return fetchMatchesAsync(new ArrayList<>(allIds)).thenCombine(masteryF, (matchDocs, masteryResp) -> {
+                JsonNode mastery = (masteryResp.status() == 200 && masteryResp.body() != null && masteryResp.body().isArray())
+                    ? masteryResp.body() : null;
+                return buildPlayerData(new PlayerPayload(gameName, tagLine, puuid, summ, rankedArr,
+                    matchIds, matchDocs, customMatchIds, matchDocs, mastery, known));
+            });
+        });
+    }
+
+    /**
+     * 조회한 Riot 응답 원문을 응답 맵으로 집계 (네트워크 호출 없음).
+     * @param matches       matchId → 매치 상세 요약 (조회 실패한 ID는 없음)
+     * @param customMatches matchId → 사설 매치 상세 요약
+     * @param mastery       숙련도 top 배열 (실패 시 null)
+     * @param known         이전 스냅샷에서 이미 요약한 매치 (상세 대신 요약을 그대로 집계)
+     */
+    public record PlayerPayload(String gameName, String tagLine, String puuid,
+                                JsonNode summoner, JsonNode leagueEntries,
+                                List<String> matchIds, Map<String, MatchDigest> matches,
+                                List<String> customMatchIds, Map<String, MatchDigest> customMatches,
+                                JsonNode mastery, KnownMatches known) {
+
+        public PlayerPayload(String gameName, String tagLine, String puuid,
+                             JsonNode summoner, JsonNode leagueEntries,
+                             List<String> matchIds, Map<String, MatchDigest> matches,
+                             List<String> customMatchIds, Map<String, MatchDigest> customMatches,
+                             JsonNode mastery) {
+            this(gameName, tagLine, puuid, summoner, leagueEntries, matchIds, matches,
+                customMatchIds, customMatches, mastery, KnownMatches.of(null));
         }
+    }
 
-        // 소환사 ID (ACS 사설 전적 조회용)
-        long summonerId = summ.path("id") != null && !summ.path("id").asText("").isEmpty()
-            ? 0 : 0; // summoner API의 id는 encrypted string이므로 accountId 사용
-        String summonerIdStr = summ.path("id").asText("");
+    /** 이전 스냅샷의 매치 요약 (matchId → 요약). 끝난 게임의 요약은 바뀌지 않으므로 그대로 다시 쓴다 */
+    public record KnownMatches(Map<String, MatchSummary> ranked, Map<String, MatchSummary> custom) {
 
-        // ── 1) 랭크/일반 매치 (Riot 공식 API)
-        List<String> matchIds = new ArrayList<>();
-        RiotResponse matchIdsResp = rget(
-            ASIA + "/lol/match/v5/matches/by-puuid/" + puuid + "/ids?count=20");
-        if (matchIdsResp.status() == 200 && matchIdsResp.body() != null && matchIdsResp.body().isArray()) {
-            matchIdsResp.body().forEach(id -> matchIds.add(id.asText()));
+        static KnownMatches of(PlayerProfile previous) {
+            Map<String, MatchSummary> ranked = new HashMap<>();
+            Map<String, MatchSummary> custom = new HashMap<>();
+            if (previous != null) {
+                for (MatchSummary m : previous.recentMatches()) ranked.put(m.matchId(), m);
+                for (MatchSummary m : previous.customMatches()) custom.put(m.matchId(), m);
+            }
+            return new KnownMatches(ranked, custom);
         }
+    }
+
+    PlayerProfile buildPlayerData(PlayerPayload payload) {
+        String gameName = payload.gameName();
+        String tagLine  = payload.tagLine();
+        String puuid    = payload.puuid();
+        JsonNode summ   = payload.summoner();
+        List<String> matchIds = payload.matchIds();
         int RANKED_LIMIT = 20;
         int CUSTOM_LIMIT = 20;
 
+        JsonNode solo = null, flex = null;
+        for (JsonNode entry : payload.leagueEntries()) {
+            String queueType = entry.path("queueType").asText();
+            if ("RANKED_SOLO_5x5".equals(queueType)) solo = entry;
+            if ("RANKED_FLEX_SR".equals(queueType))  flex = entry;
+        }
+
+        // 집계용 카운터: 라인 {w, l, n}, 챔피언 {w, l, k, d, a, n}
         Map<String, Integer> laneCounts = new HashMap<>();
-        Map<String, Map<String, Integer>> laneStats  = new HashMap<>();
-        Map<String, Map<String, Object>> champStats  = new HashMap<>();
-        List<Map<String, Object>> recentMatches = new ArrayList<>();
+        Map<String, int[]> laneStats  = new HashMap<>();
+        Map<String, int[]> champStats = new HashMap<>();
+        List<MatchSummary> recentMatches = new ArrayList<>();
 
-        // 랭크/일반 매치 처리
+        // 랭크/일반 매치 처리 — 매치마다 요약을 만든 뒤 요약으로 집계한다 (이전 요약도 같은 경로)
         for (String mid : matchIds) {
             if (recentMatches.size() >= RANKED_LIMIT) break;
 
-            RiotResponse matchResp = rget(ASIA + "/lol/match/v5/matches/" + mid);
-            if (matchResp.status() != 200 || matchResp.body() == null) continue;
-
-            JsonNode minfo = matchResp.body().get("info");
-            if (minfo == null) continue;
-
-            int queueId = minfo.path("queueId").asInt(-1);
-            String gameType = minfo.path("gameType").asText("");
-            boolean isCustom = (queueId == 0 || "CUSTOM_GAME".equals(gameType));
-            if (isCustom) continue; // 사설은 ACS에서 별도 처리
-
-            for (JsonNode p : minfo.path("participants")) {
-                if (!puuid.equals(p.path("puuid").asText())) continue;
-
-                String cname  = p.path("championName").asText("Unknown");
-                String pos    = p.path("teamPosition").asText("");
-                boolean isWin = p.path("win").asBoolean(false);
-                int k = p.path("kills").asInt(0);
-                int d = p.path("deaths").asInt(0);
-                int a = p.path("assists").asInt(0);
-
-                if (!pos.isEmpty()) {
-                    laneCounts.merge(pos, 1, Integer::sum);
-                    laneStats.computeIfAbsent(pos, x -> {
-                        Map<String, Integer> m = new HashMap<>();
-                        m.put("w", 0); m.put("l", 0); m.put("n", 0); return m;
-                    });
-                    laneStats.get(pos).merge("n", 1, Integer::sum);
-                    laneStats.get(pos).merge(isWin ? "w" : "l", 1, Integer::sum);
-                }
+            MatchSummary m = payload.known().ranked().get(mid);
+            if (m == null) {
+                if (payload.known().custom().containsKey(mid)) continue; // 사설은 ACS에서 별도 처리
+                m = rankedSummary(mid, payload.matches().get(mid), puuid);
+                if (m == null) continue;
+            }
 
-                champStats.computeIfAbsent(cname, x -> {
-                    Map<String, Object> m = new HashMap<>();
-                    m.put("w", 0); m.put("l", 0); m.put("k", 0);
-                    m.put("d", 0); m.put("a", 0); m.put("n", 0); return m;
-                });
-                Map<String, Object> cs = champStats.get(cname);
-                cs.put("n", (Integer)cs.get("n") + 1);
-                cs.put("k", (Integer)cs.get("k") + k);
-                cs.put("d", (Integer)cs.get("d") + d);
-                cs.put("a", (Integer)cs.get("a") + a);
-                cs.put(isWin ? "w" : "l", (Integer)cs.get(isWin ? "w" : "l") + 1);
-
-                if (recentMatches.size() < RANKED_LIMIT) {
-                    int dur = minfo.path("gameDuration").asInt(0);
-                    List<Integer> items = new ArrayList<>();
-                    for (int i = 0; i < 7; i++) items.add(p.path("item" + i).asInt(0));
-
-                    Map<String, Object> matchData = new LinkedHashMap<>();
-                    matchData.put("matchId",       mid);
-                    matchData.put("participantId", p.path("participantId").asInt(0));
-                    matchData.put("champion",      cname);
-                    matchData.put("win",           isWin);
-                    matchData.put("kills",         k);
-                    matchData.put("deaths",        d);
-                    matchData.put("assists",       a);
-                    matchData.put("kda",  Math.round((k + a) / (double)Math.max(d, 1) * 100.0) / 100.0);
-                    matchData.put("lane", LANE_KO.getOrDefault(pos, pos.isEmpty() ? "?" : pos));
-                    matchData.put("duration", dur / 60 + ":" + String.format("%02d", dur % 60));
-                    matchData.put("durationSec", dur);
-                    matchData.put("items", items);
-                    recentMatches.add(matchData);
-                }
-                break;
+            String pos = LANE_POSITION.getOrDefault(m.lane(), "?".equals(m.lane()) ? "" : m.lane());
+            if (!pos.isEmpty()) {
+                laneCounts.merge(pos, 1, Integer::sum);
+                int[] ls = laneStats.computeIfAbsent(pos, x -> new int[3]);
+                ls[m.win() ? 0 : 1]++;
+                ls[2]++;
             }
+            addChampGame(champStats, m.champion(), m.win(), m.kills(), m.deaths(), m.assists());
+            recentMatches.add(m);
         }
 
-        // ── 2) 사설 매치 (ACS API로 매치 ID 확보 → Riot API로 상세 조회)
-        Map<String, Map<String, Object>> customChampStats = new HashMap<>();
-        List<Map<String, Object>> customMatches = new ArrayList<>();
+        // ── 2) 사설 매치
+        Map<String, int[]> customChampStats = new HashMap<>();
+        List<MatchSummary> customMatches = new ArrayList<>();
         int customWins = 0, customLosses = 0;
 
-        // ACS에서 사설 매치 ID 가져오기 (본인 계정의 summonerId 사용)
-        // id_token의 PVPNET_ID는 로그인 계정 기준이므로, 검색 대상의 accountId로 조회
-        // ACS는 summonerId(=accountId numeric)가 필요 → summoner API의 accountId에서 추출 시도
-        List<String> customMatchIds = new ArrayList<>();
-        if (idToken != null && !idToken.isBlank()) {
-            // JWT에서 PVPNET_ID 추출 (로그인 계정의 사설 전적으로 매치 ID 확보)
-            long pvpnetId = extractPvpnetIdFromToken(idToken);
-            if (pvpnetId > 0) {
-                customMatchIds = fetchCustomMatchIds(pvpnetId, CUSTOM_LIMIT);
-            }
-        }
-
-        for (String mid : customMatchIds) {
+        for (String mid : payload.customMatchIds()) {
             if (customMatches.size() >= CUSTOM_LIMIT) break;
 
-            RiotResponse matchResp = rget(ASIA + "/lol/match/v5/matches/" + mid);
-            if (matchResp.status() != 200 || matchResp.body() == null) continue;
-
-            JsonNode minfo = matchResp.body().get("info");
-            if (minfo == null) continue;
-
-            for (JsonNode p : minfo.path("participants")) {
-                if (!puuid.equals(p.path("puuid").asText())) continue;
-
-                String cname  = p.path("championName").asText("Unknown");
-                boolean isWin = p.path("win").asBoolean(false);
-                int k = p.path("kills").asInt(0);
-                int d = p.path("deaths").asInt(0);
-                int a = p.path("assists").asInt(0);
-
-                if (isWin) customWins++; else customLosses++;
-                customChampStats.computeIfAbsent(cname, x -> {
-                    Map<String, Object> m = new HashMap<>();
-                    m.put("w", 0); m.put("l", 0); m.put("k", 0);
-                    m.put("d", 0); m.put("a", 0); m.put("n", 0); return m;
-                });
-                Map<String, Object> ccs = customChampStats.get(cname);
-                ccs.put("n", (Integer)ccs.get("n") + 1);
-                ccs.put("k", (Integer)ccs.get("k") + k);
-                ccs.put("d", (Integer)ccs.get("d") + d);
-                ccs.put("a", (Integer)ccs.get("a") + a);
-                ccs.put(isWin ? "w" : "l", (Integer)ccs.get(isWin ? "w" : "l") + 1);
-
-                int dur = minfo.path("gameDuration").asInt(0);
-                List<Integer> items = new ArrayList<>();
-                for (int i = 0; i < 7; i++) items.add(p.path("item" + i).asInt(0));
-
-                // 사설 게임 참가자 목록
-                List<Map<String, Object>> teammates = new ArrayList<>();
-                for (JsonNode pp : minfo.path("participants")) {
-                    Map<String, Object> tm = new LinkedHashMap<>();
-                    tm.put("gameName", pp.path("riotIdGameName").asText(""));
-                    tm.put("tagLine", pp.path("riotIdTagline").asText(""));
-                    tm.put("champion", pp.path("championName").asText(""));
-                    tm.put("team", pp.path("teamId").asInt(0));
-                    tm.put("kills", pp.path("kills").asInt(0));
-                    tm.put("deaths", pp.path("deaths").asInt(0));
-                    tm.put("assists", pp.path("assists").asInt(0));
-                    tm.put("win", pp.path("win").asBoolean(false));
-                    teammates.add(tm);
-                }
+            MatchSummary m = payload.known().custom().get(mid);
+            if (m == null) m = customSummary(mid, payload.customMatches().get(mid), puuid);
+            if (m == null) continue;
 
-                Map<String, Object> matchData = new LinkedHashMap<>();
-                matchData.put("matchId",       mid);
-                matchData.put("participantId", p.path("participantId").asInt(0));
-                matchData.put("champion",      cname);
-                matchData.put("win",           isWin);
-                matchData.put("kills",         k);
-                matchData.put("deaths",        d);
-                matchData.put("assists",       a);
-                matchData.put("kda",  Math.round((k + a) / (double)Math.max(d, 1) * 100.0) / 100.0);
-                matchData.put("lane", "사설");
-                matchData.put("duration", dur / 60 + ":" + String.format("%02d", dur % 60));
-                matchData.put("durationSec", dur);
-                matchData.put("items", items);
-                matchData.put("participants", teammates);
-                customMatches.add(matchData);
-                break;
-            }
+            if (m.win()) customWins++; else customLosses++;
+            addChampGame(customChampStats, m.champion(), m.win(), m.kills(), m.deaths(), m.assists());
+            customMatches.add(m);
         }
 
-        List<Map<String, Object>> seasonMost = champStats.entrySet().stream()
-            .sorted((a2, b2) -> (Integer)b2.getValue().get("n") - (Integer)a2.getValue().get("n"))
-            .limit(10)
-            .map(e -> {
-                String cn = e.getKey();
-                Map<String, Object> s = e.getValue();
-                int n  = (Integer) s.get("n");
-                int w  = (Integer) s.get("w");
-                int kk = (Integer) s.get("k");
-                int dd = (Integer) s.get("d");
-                int aa = (Integer) s.get("a");
-                int wr = n > 0 ? (int)Math.round(w * 100.0 / n) : 0;
-                double kda = Math.round((kk + aa) / (double)Math.max(dd, 1) * 100.0) / 100.0;
-                Map<String, Object> r = new LinkedHashMap<>();
-                r.put("name", cn); r.put("games", n); r.put("winRate", wr); r.put("kda", kda);
-                r.put("imgUrl", ddBase + "/img/champion/" + cn + ".png");
-                return r;
-            }).collect(Collectors.toList());
+        List<ChampStat> seasonMost = mostPlayed(champStats);
 
         // 주 라인/부 라인 결정 (판수 가중 승률: adjustedWR = winRate * (1 - 1/(games+1)))
         // 1판 100% → 50, 5판 70% → 58.3, 9판 44% → 39.6, 8판 50% → 44.4
         List<String> sortedLanes = laneStats.entrySet().stream()
             .sorted((a, b) -> {
-                Map<String, Integer> sA = a.getValue();
-                Map<String, Integer> sB = b.getValue();
-                double wrA = sA.get("n") > 0 ? (double) sA.get("w") / sA.get("n") * 100.0 : 0;
-                double wrB = sB.get("n") > 0 ? (double) sB.get("w") / sB.get("n") * 100.0 : 0;
-                double adjA = wrA * (1.0 - 1.0 / (sA.get("n") + 1));
-                double adjB = wrB * (1.0 - 1.0 / (sB.get("n") + 1));
+                int[] sA = a.getValue();
+                int[] sB = b.getValue();
+                double wrA = sA[2] > 0 ? (double) sA[0] / sA[2] * 100.0 : 0;
+                double wrB = sB[2] > 0 ? (double) sB[0] / sB[2] * 100.0 : 0;
+                double adjA = wrA * (1.0 - 1.0 / (sA[2] + 1));
+                double adjB = wrB * (1.0 - 1.0 / (sB[2] + 1));
                 if (Math.abs(adjA - adjB) > 0.01) return Double.compare(adjB, adjA);
-                return Integer.compare(sB.get("n"), sA.get("n"));
+                return Integer.compare(sB[2], sA[2]);
             })
             .map(Map.Entry::getKey)
             .collect(Collectors.toList());
@@ -486,32 +650,29 @@ public class RiotApiService {
         // 주 라인 승률 계산
         int pWr = 0;
         if (laneStats.containsKey(primary)) {
-            Map<String, Integer> ps = laneStats.get(primary);
-            pWr = (int) Math.round(ps.get("w") * 100.0 / Math.max(ps.get("n"), 1));
+            int[] ps = laneStats.get(primary);
+            pWr = (int) Math.round(ps[0] * 100.0 / Math.max(ps[2], 1));
         }
 
-        RiotResponse masteryResp = rget(
-            KR + "/lol/champion-mastery/v4/champion-masteries/by-puuid/" + puuid + "/top?count=10");
-        List<Map<String, Object>> topChamps = new ArrayList<>();
-        if (masteryResp.status() == 200 && masteryResp.body() != null && masteryResp.body().isArray()) {
-            for (JsonNode m : masteryResp.body()) {
+        List<MasteryChamp> topChamps = new ArrayList<>();
+        if (payload.mastery() != null) {
+            for (JsonNode m : payload.mastery()) {
                 int cid = m.path("championId").asInt(-1);
                 Map<String, String> info = champMap.getOrDefault(cid, new HashMap<>());
-                Map<String, Object> cd = new LinkedHashMap<>();
-                cd.put("name",    info.getOrDefault("name", String.valueOf(cid)));
                 String img = info.get("img");
-                cd.put("imgUrl", img != null ? ddBase + "/img/champion/" + img + ".png" : "");
-                cd.put("level",  m.path("championLevel").asInt(0));
-                cd.put("points", m.path("championPoints").asInt(0));
-                topChamps.add(cd);
+                topChamps.add(new MasteryChamp(
+                    info.getOrDefault("name", String.valueOf(cid)),
+                    img != null ? ddBase + "/img/champion/" + img + ".png" : "",
+                    m.path("championLevel").asInt(0),
+                    m.path("championPoints").asInt(0)));
             }
         }
 
         int soloSc = calcScore(solo);
         int flexSc = calcScore(flex);
-        Map<String, Object> fmtSolo = fmtRank(solo, soloSc, "솔로랭크");
-        Map<String, Object> fmtFlex = fmtRank(flex, flexSc, "자유랭크");
-        Map<String, Object> highest;
+        RankEntry fmtSolo = fmtRank(solo, soloSc, "솔로랭크");
+        RankEntry fmtFlex = fmtRank(flex, flexSc, "자유랭크");
+        RankEntry highest;
         int score;
         if (soloSc >= flexSc) { highest = fmtSolo; score = soloSc; }
         else                   { highest = fmtFlex; score = flexSc; }
@@ -521,46 +682,12 @@ public class RiotApiService {
             score = estimateUnrankedScore(recentMatches);
         }
 
-        Map<String, Object> resp = new LinkedHashMap<>();
-        resp.put("displayName",    gameName + "#" + tagLine);
-        resp.put("gameName",       gameName);
-        resp.put("tagLine",        tagLine);
-        resp.put("level",          summ.path("summonerLevel").asInt(0));
-        resp.put("iconUrl", ddBase + "/img/profileicon/" + summ.path("profileIconId").asInt(29) + ".png");
-        resp.put("highestRank",    highest);
-        resp.put("solo",           fmtSolo);
-        resp.put("flex",           fmtFlex);
-        resp.put("primaryLane",    primary);
-        resp.put("secondaryLane",  secondary);
-        resp.put("primaryLaneKo",  LANE_KO.getOrDefault(primary, "미정"));
-        resp.put("primaryLaneWr",  pWr);
-        resp.put("laneStats",      laneStats);
-        resp.put("laneCounts",     laneCounts);
-        resp.put("score",          score);
-        resp.put("topChamps",      topChamps);
-        resp.put("seasonMost",     seasonMost);
-        resp.put("recentMatches",  recentMatches);
-        resp.put("totalMatches",   matchIds.size());
-
-        // 사설 게임 데이터
-        List<Map<String, Object>> customMost = customChampStats.entrySet().stream()
-            .sorted((a2, b2) -> (Integer)b2.getValue().get("n") - (Integer)a2.getValue().get("n"))
-            .limit(10)
-            .map(e -> {
-                String cn = e.getKey();
-                Map<String, Object> s = e.getValue();
-                int n  = (Integer) s.get("n");
-                int w  = (Integer) s.get("w");
-                int kk = (Integer) s.get("k");
-                int dd = (Integer) s.get("d");
-                int aa = (Integer) s.get("a");
-                int wr = n > 0 ? (int)Math.round(w * 100.0 / n) : 0;
-                double kda2 = Math.round((kk + aa) / (double)Math.max(dd, 1) * 100.0) / 100.0;
-                Map<String, Object> r = new LinkedHashMap<>();
-                r.put("name", cn); r.put("games", n); r.put("winRate", wr); r.put("kda", kda2);
-                r.put("imgUrl", ddBase + "/img/champion/" + cn + ".png");
-                return r;
-            }).collect(Collectors.toList());
+        // 라인 집계는 HashMap 순서 그대로 옮긴다 (기존 응답과 같은 키 순서)
+        Map<String, LaneStat> laneStatView = new LinkedHashMap<>();
+        for (Map.Entry<String, int[]> e : laneStats.entrySet()) {
+            int[] ls = e.getValue();
+            laneStatView.put(e.getKey(), new LaneStat(ls[0], ls[1], ls[2]));
+        }
 
         // 사설 점수 계산 (전적 기반)
         int customScore = 0;
@@ -568,93 +695,217 @@ public class RiotApiService {
             customScore = estimateUnrankedScore(customMatches);
         }
 
-        resp.put("customMatches",  customMatches);
-        resp.put("customMost",     customMost);
-        resp.put("customWins",     customWins);
-        resp.put("customLosses",   customLosses);
-        resp.put("customTotal",    customWins + customLosses);
-        resp.put("customScore",    customScore);
+        return new PlayerProfile(
+            gameName + "#" + tagLine,
+            gameName,
+            tagLine,
+            puuid,
+            summ.path("summonerLevel").asInt(0),
+            ddBase + "/img/profileicon/" + summ.path("profileIconId").asInt(29) + ".png",
+            highest,
+            fmtSolo,
+            fmtFlex,
+            primary,
+            secondary,
+            LANE_KO.getOrDefault(primary, "미정"),
+            pWr,
+            laneStatView,
+            laneCounts,
+            score,
+            topChamps,
+            seasonMost,
+            recentMatches,
+            matchIds.size(),
+            customMatches,
+            mostPlayed(customChampStats),
+            customWins,
+            customLosses,
+            customWins + customLosses,
+            customScore,
+            null,
+            null,
+            null);
+    }
 
-        return resp;
+    /** 챔피언 카운터 {w, l, k, d, a, n} 에 한 판 더하기 */
+    private static void addChampGame(Map<String, int[]> stats, String champion, boolean win, int k, int d, int a) {
+        int[] cs = stats.computeIfAbsent(champion, x -> new int[6]);
+        cs[win ? 0 : 1]++;
+        cs[2] += k;
+        cs[3] += d;
+        cs[4] += a;
+        cs[5]++;
     }
 
-    private Map<String, Object> fmtRank(JsonNode entry, int score, String queueType) {
+    /** 판수 많은 순 상위 10 챔피언 (동률은 집계 맵 순서) */
+    private List<ChampStat> mostPlayed(Map<String, int[]> stats) {
+        return stats.entrySet().stream()
+            .sorted((a2, b2) -> b2.getValue()[5] - a2.getValue()[5])
+            .limit(10)
+            .map(e -> {
+                String cn = e.getKey();
+                int[] s  = e.getValue();
+                int n  = s[5];
+                int wr = n > 0 ? (int)Math.round(s[0] * 100.0 / n) : 0;
+                double kda = Math.round((s[2] + s[4]) / (double)Math.max(s[3], 1) * 100.0) / 100.0;
+                return new ChampStat(cn, n, wr, kda, ddBase + "/img/champion/" + cn + ".png");
+            }).collect(Collectors.toList());
+    }
+
+    /** 랭크/일반 매치 상세 → 본인 기준 요약 (사설 게임이거나 본인이 없으면 null) */
+    private static MatchSummary rankedSummary(String mid, MatchDigest match, String puuid) {
+        if (match == null) return null;
+
+        boolean isCustom = (match.queueId() == 0 || "CUSTOM_GAME".equals(match.gameType()));
+        if (isCustom) return null; // 사설은 ACS에서 별도 처리
+
+        for (MatchDigest.Participant p : match.participants()) {
+            if (!puuid.equals(p.puuid())) continue;
+
+            String pos = p.teamPosition();
+            return matchSummary(mid, match, p, LANE_KO.getOrDefault(pos, pos.isEmpty() ? "?" : pos), null);
+        }
+        return null;
+    }
+
+    /** 사설 매치 상세 → 본인 기준 요약 + 참가자 목록 (본인이 없으면 null) */
+    private static MatchSummary customSummary(String mid, MatchDigest match, String puuid) {
+        if (match == null) return null;
+
+        for (MatchDigest.Participant p : match.participants()) {
+            if (!puuid.equals(p.puuid())) continue;
+
+            // 사설 게임 참가자 목록
+            List<MatchParticipant> teammates = new ArrayList<>();
+            for (MatchDigest.Participant pp : match.participants()) {
+                teammates.add(new MatchParticipant(
+                    pp.riotIdGameName(),
+                    pp.riotIdTagline(),
+                    pp.championName() != null ? pp.championName() : "",
+                    pp.teamId(),
+                    pp.kills(),
+                    pp.deaths(),
+                    pp.assists(),
+                    pp.win()));
+            }
+            return matchSummary(mid, match, p, "사설", teammates);
+        }
+        return null;
+    }
+
+    private static MatchSummary matchSummary(String mid, MatchDigest match, MatchDigest.Participant p,
+                                             String lane, List<MatchParticipant> participants) {
+        int dur = match.gameDuration();
+        int k = p.kills(), d = p.deaths(), a = p.assists();
+        List<Integer> items = new ArrayList<>(7);
+        for (int item : p.items()) items.add(item);
+        String champion = p.championName() != null ? p.championName() : "Unknown";
+        return new MatchSummary(mid, p.participantId(), champion, p.win(), k, d, a,
+            Math.round((k + a) / (double)Math.max(d, 1) * 100.0) / 100.0,
+            lane, dur / 60 + ":" + String.format("%02d", dur % 60), dur, items, participants);
+    }
+
+    private RankEntry fmtRank(JsonNode entry, int score, String queueType) {
         if (entry == null || entry.isNull()) return null;
         int w = entry.path("wins").asInt(0);
         int l = entry.path("losses").asInt(0);
-        Map<String, Object> r = new LinkedHashMap<>();
-        r.put("tier",      entry.path("tier").asText("IRON"));
-        r.put("rank",      entry.path("rank").asText("IV"));
-        r.put("lp",        entry.path("leaguePoints").asInt(0));
-        r.put("wins",      w);
-        r.put("losses",    l);
-        r.put("winRate",   (w + l) > 0 ? Math.round(w * 100.0 / (w + l) * 10.0) / 10.0 : 0.0);
-        r.put("score",     score);
-        r.put("queueType", queueType);
-        return r;
-    }
-
-    public List<Map<String, Object>> getTimeline(String matchId, int pid) throws Exception {
-        RiotResponse resp = rget(ASIA + "/lol/match/v5/timelines/" + matchId);
-        if (resp.status() != 200 || resp.body() == null)
-            throw new RuntimeException("타임라인 로드 실패");
+        return new RankEntry(
+            entry.path("tier").asText("IRON"),
+            entry.path("rank").asText("IV"),
+            entry.path("leaguePoints").asInt(0),
+            w,
+            l,
+            (w + l) > 0 ? Math.round(w * 100.0 / (w + l) * 10.0) / 10.0 : 0.0,
+            score,
+            queueType);
+    }
 
-        JsonNode frames = resp.body().path("info").path("frames");
-        Set<Integer> undoSet = new HashSet<>();
+    /**
+     * 한 참가자의 타임라인 이벤트 (분 순서).
+     * 매치별 요약(참가자 전원 몫)을 처음 한 번만 만들어 두고, 다른 참가자 요청은 그 요약에서 걸러 낸다.
+     */
+    public CompletableFuture<List<Map<String, Object>>> getTimelineAsync(String matchId, int pid) {
+        return timelineDigest(matchId).thenApply(digest -> timelineEvents(digest.forParticipant(pid)));
+    }
 
-        for (JsonNode f : frames) {
-            for (JsonNode ev : f.path("events")) {
-                if ("ITEM_UNDO".equals(ev.path("type").asText())
-                    && ev.path("participantId").asInt() == pid) {
-                    undoSet.add(ev.path("beforeActionItemId").asInt());
+    private List<Map<String, Object>> timelineEvents(List<TimelineDigest.Event> digest) {
+        List<Map<String, Object>> events = new ArrayList<>(digest.size());
+        for (TimelineDigest.Event ev : digest) {
+            switch (ev.kind()) {
+                case ITEM -> {
+                    Map<String, Object> e = new LinkedHashMap<>();
+                    e.put("type",   "item");
+                    e.put("minute", ev.minute());
+                    e.put("name",   itemMap.getOrDefault(ev.itemId(), "ID " + ev.itemId()));
+                    e.put("imgUrl", ddBase + "/img/item/" + ev.itemId() + ".png");
+                    events.add(e);
                 }
-            }
-        }
-
-        List<Map<String, Object>> events = new ArrayList<>();
-        for (JsonNode f : frames) {
-            for (JsonNode ev : f.path("events")) {
-                int minV = ev.path("timestamp").asInt(0) / 60000;
-                String et = ev.path("type").asText();
-
-                if ("ITEM_PURCHASED".equals(et) && ev.path("participantId").asInt() == pid) {
-                    int iid = ev.path("itemId").asInt();
-                    if (!undoSet.contains(iid)) {
-                        Map<String, Object> e = new LinkedHashMap<>();
-                        e.put("type",   "item");
-                        e.put("minute", minV);
-                        e.put("name",   itemMap.getOrDefault(iid, "ID " + iid));
-                        e.put("imgUrl", ddBase + "/img/item/" + iid + ".png");
-                        events.add(e);
-                    }
-                } else if ("CHAMPION_KILL".equals(et)) {
-                    if (ev.path("killerId").asInt() == pid) {
-                        events.add(Map.of("type", "kill",   "minute", minV));
-                    } else if (ev.path("victimId").asInt() == pid) {
-                        events.add(Map.of("type", "death",  "minute", minV));
-                    } else {
-                        for (JsonNode aid : ev.path("assistingParticipantIds")) {
-                            if (aid.asInt() == pid) {
-                                events.add(Map.of("type", "assist", "minute", minV));
-                                break;
-                            }
-                        }
-                    }
-                } else if ("ELITE_MONSTER_KILL".equals(et)) {
-                    String sub = ev.path("monsterSubType").asText("");
-                    if (sub.isEmpty()) sub = ev.path("monsterType").asText("");
+                case KILL   -> events.add(Map.of("type", "kill",   "minute", ev.minute()));
+                case DEATH  -> events.add(Map.of("type", "death",  "minute", ev.minute()));
+                case ASSIST -> events.add(Map.of("type", "assist", "minute", ev.minute()));
+                case OBJECTIVE -> {
                     Map<String, Object> e = new LinkedHashMap<>();
                     e.put("type",   "objective");
-                    e.put("minute", minV);
-                    e.put("name",   MONSTER_KO.getOrDefault(sub, sub));
+                    e.put("minute", ev.minute());
+                    e.put("name",   MONSTER_KO.getOrDefault(ev.objective(), ev.objective()));
                     events.add(e);
                 }
             }
         }
-        events.sort(Comparator.comparingInt(e -> (Integer) e.get("minute")));
         return events;
     }
 
+    /**
+     * 매치 타임라인 요약. 메모리 → 저장소 원문 → Riot 순으로 찾고, Riot 에서 받은 원문은 그대로 저장한다.
+     * 문서는 트리로 만들지 않고 TimelineDigest 가 한 번 훑어 모든 참가자 이벤트를 뽑는다.
+     * 저장소 조회·저장은 dbExecutor 에서 돈다.
+     */
+    private CompletableFuture<TimelineDigest> timelineDigest(String matchId) {
+        synchronized (timelines) {
+            TimelineDigest cached = timelines.get(matchId);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<TimelineDigest> mine  = new CompletableFuture<>();
+        CompletableFuture<TimelineDigest> other = timelinesInFlight.putIfAbsent(matchId, mine);
+        if (other != null) return other;
+
+        CompletableFuture.supplyAsync(
+                () -> matchStore.findRaw(matchId, MatchDocumentEntity.KIND_TIMELINE).orElse(null), dbExecutor)
+            .thenCompose(stored -> {
+                if (stored != null) return CompletableFuture.completedFuture(readTimeline(stored));
+                return sendAsync(riotRequest(ASIA + "/lol/match/v5/timelines/" + matchId), 0).thenApply(resp -> {
+                    if (resp.statusCode() != 200 || resp.body() == null || resp.body().length == 0)
+                        throw new RuntimeException("타임라인 로드 실패");
+                    return resp.body();
+                }).thenApplyAsync(raw -> {
+                    TimelineDigest digest = readTimeline(raw);
+                    matchStore.saveRaw(matchId, MatchDocumentEntity.KIND_TIMELINE, raw);
+                    return digest;
+                }, dbExecutor);
+            })
+            .thenApply(digest -> {
+                synchronized (timelines) {
+                    timelines.put(matchId, digest);
+                }
+                return digest;
+            })
+            .whenComplete((digest, err) -> {
+                timelinesInFlight.remove(matchId, mine);
+                if (err != null) mine.completeExceptionally(rootCause(err));
+                else             mine.complete(digest);
+            });
+        return mine;
+    }
+
+    private static TimelineDigest readTimeline(byte[] raw) {
+        try {
+            return TimelineDigest.read(raw);
+        } catch (Exception e) {
+            throw new RuntimeException("타임라인 로드 실패");
+        }
+    }
+
     /**
      * JWT id_token에서 PVPNET_ID_KR (lol[0].uid) 추출
      */
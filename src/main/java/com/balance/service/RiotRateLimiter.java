@@ -0,0 +1,177 @@
+package com.balance.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Riot API 호출 전 선제적으로 속도 제한을 거는 공용 리미터.
+ *
+ * 앱 제한(X-App-Rate-Limit)은 리전 호스트별로, 메소드 제한(X-Method-Rate-Limit)은
+ * 호스트 + 라우트(account, summoner, league, match, timeline, mastery)별로 버킷을 둔다.
+ * 각 버킷은 "limit:windowSec" 윈도우마다 limit 개의 토큰을 가지며, 사용한 토큰은 정확히
+ * 한 윈도우 뒤에 반환된다 (최근 limit 개 전송 시각을 링 버퍼로 보관).
+ * 토큰이 없으면 호출 스레드를 재우지 않고, 전송 시각을 예약한 뒤 지연 실행되는 future 를 돌려준다.
+ */
+@Component
+public class RiotRateLimiter {
+
+    public enum Route { ACCOUNT, SUMMONER, LEAGUE, MATCH_IDS, MATCH, TIMELINE, MASTERY, OTHER }
+
+    /** 네트워크 지연으로 Riot 쪽 집계 시각이 밀리는 것을 감안한 여유 */
+    private static final long SAFETY_MARGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** 응답 헤더를 받기 전 사용할 앱 제한 (개발 키 기준) */
+    @Value("${riot.app-rate-limit:20:1,100:120}")
+    private String defaultAppLimit = "20:1,100:120";
+
+    private final Map<String, List<Window>> appBuckets    = new HashMap<>();
+    private final Map<String, List<Window>> methodBuckets = new HashMap<>();
+
+    public static Route routeOf(String url) {
+        String path = URI.create(url).getPath();
+        if (path.startsWith("/riot/account/"))           return Route.ACCOUNT;
+        if (path.startsWith("/lol/summoner/"))           return Route.SUMMONER;
+        if (path.startsWith("/lol/league/"))             return Route.LEAGUE;
+        if (path.startsWith("/lol/match/v5/timelines/")) return Route.TIMELINE;
+        if (path.startsWith("/lol/match/v5/matches/by-puuid/")) return Route.MATCH_IDS;
+        if (path.startsWith("/lol/match/"))              return Route.MATCH;
+        if (path.startsWith("/lol/champion-mastery/"))   return Route.MASTERY;
+        return Route.OTHER;
+    }
+
+    /**
+     * 전송 슬롯을 예약한다. 즉시 보낼 수 있으면 완료된 future, 아니면 예약 시각에 완료되는 future.
+     */
+    public CompletableFuture<Void> acquire(String url) {
+        long delay = reserve(url, System.nanoTime());
+        if (delay <= 0) return CompletableFuture.completedFuture(null);
+        return CompletableFuture.runAsync(() -> {},
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+    }
+
+    /** 응답 헤더의 제한 값이 바뀌었으면 버킷을 다시 만든다 */
+    public synchronized void update(String url, HttpHeaders headers) {
+        String host = URI.create(url).getHost();
+        headers.firstValue("X-App-Rate-Limit")
+            .ifPresent(v -> resize(appBuckets, host, v));
+        headers.firstValue("X-Method-Rate-Limit")
+            .ifPresent(v -> resize(methodBuckets, host + "|" + routeOf(url), v));
+    }
+
+    /**
+     * 429 를 받았을 때 Retry-After 동안 해당 버킷(앱 또는 메소드)을 막는다.
+     * X-Rate-Limit-Type 이 service 이거나 없으면 (Riot 뒤쪽 서비스의 429) 버킷은 건드리지 않고 재시도만 한다.
+     * Retry-After 가 없거나 숫자가 아니면 1초.
+     * @return 재시도까지 기다려야 하는 나노초
+     */
+    public synchronized long penalize(String url, HttpHeaders headers) {
+        long retryAfter = TimeUnit.SECONDS.toNanos(retryAfterSeconds(headers));
+        long until = System.nanoTime() + retryAfter;
+        String host = URI.create(url).getHost();
+        String type = headers.firstValue("X-Rate-Limit-Type").orElse("service");
+        if ("application".equals(type)) block(appBuckets.get(host), until);
+        if ("method".equals(type))      block(methodBuckets.get(host + "|" + routeOf(url)), until);
+        return retryAfter;
+    }
+
+    private static long retryAfterSeconds(HttpHeaders headers) {
+        try {
+            long seconds = Long.parseLong(headers.firstValue("Retry-After").orElse("1").trim());
+            return seconds > 0 ? seconds : 1;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private synchronized long reserve(String url, long now) {
+        String host = URI.create(url).getHost();
+        List<Window> app    = appBuckets.computeIfAbsent(host, h -> parse(defaultAppLimit));
+        List<Window> method = methodBuckets.getOrDefault(host + "|" + routeOf(url), List.of());
+
+        long sendAt = now;
+        for (Window w : app)    sendAt = Math.max(sendAt, w.earliest());
+        for (Window w : method) sendAt = Math.max(sendAt, w.earliest());
+        for (Window w : app)    w.record(sendAt);
+        for (Window w : method) w.record(sendAt);
+        return sendAt - now;
+    }
+
+    private void resize(Map<String, List<Window>> buckets, String key, String header) {
+        List<Window> current = buckets.get(key);
+        if (current != null && header.equals(spec(current))) return;
+        List<Window> next = parse(header);
+        if (current != null) {
+            for (Window w : next) {
+                for (Window old : current) {
+                    if (old.windowNanos == w.windowNanos) w.copyFrom(old);
+                }
+            }
+        }
+        buckets.put(key, next);
+    }
+
+    private static void block(List<Window> windows, long until) {
+        if (windows == null) return;
+        for (Window w : windows) w.blockUntil(until);
+    }
+
+    /** "20:1,100:120" → [20개/1초, 100개/120초] */
+    static List<Window> parse(String spec) {
+        List<Window> result = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] lw = part.trim().split(":");
+            if (lw.length != 2) continue;
+            result.add(new Window(Integer.parseInt(lw[0].trim()),
+                TimeUnit.SECONDS.toNanos(Long.parseLong(lw[1].trim()))));
+        }
+        return result;
+    }
+
+    private static String spec(List<Window> windows) {
+        StringJoiner sj = new StringJoiner(",");
+        for (Window w : windows) sj.add(w.sent.length + ":" + TimeUnit.NANOSECONDS.toSeconds(w.windowNanos));
+        return sj.toString();
+    }
+
+    /** limit 개 토큰 / window. sent 는 최근 limit 개 전송 시각 (head 가 가장 오래된 것) */
+    static final class Window {
+        final long   windowNanos;
+        final long[] sent;
+        int head;
+
+        Window(int limit, long windowNanos) {
+            this.windowNanos = windowNanos;
+            this.sent        = new long[Math.max(1, limit)];
+            Arrays.fill(sent, Long.MIN_VALUE / 2);
+        }
+
+        /** 가장 오래된 토큰이 반환되는 시각 */
+        long earliest() {
+            return sent[head] + windowNanos + SAFETY_MARGIN_NANOS;
+        }
+
+        void record(long at) {
+            sent[head] = at;
+            head = (head + 1) % sent.length;
+        }
+
+        void blockUntil(long until) {
+            long floor = until - windowNanos - SAFETY_MARGIN_NANOS;
+            for (int i = 0; i < sent.length; i++) sent[i] = Math.max(sent[i], floor);
+        }
+
+        /** 제한 값이 바뀌어도 최근 전송 이력은 유지한다 */
+        void copyFrom(Window old) {
+            int n = old.sent.length;
+            for (int i = 0; i < n; i++) {
+                record(old.sent[(old.head + i) % n]);
+            }
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package com.balance.service;
+
+import java.util.*;
+
+/**
+ * 한 세션(여러 판)의 팀/라인 일정을 한 번에 짜는 지역 탐색 (담금질).
+ *
+ * 비용 = 같은 팀 반복 + 같은 라인 반복 + 라인 선호 손실 + 판별 점수 차 + 플레이어별 누적 유불리.
+ * 반복 횟수는 오늘 저장된 이력에서 시작하므로 이미 한 판을 같이 한 두 사람은 첫 판부터 반복으로 친다.
+ * 한 번의 이동은 한 판만 바꾸므로, 그 판의 기여만 빼고 다시 더해 비용을 증분 갱신한다.
+ *
+ * 이동:
+ *  - 고정/분리 블록 방향 뒤집기 (팀1 인원이 그대로인 한두 블록) — 조건 없는 로비에서는 두 사람 맞교환
+ *  - 같은 팀 두 사람의 라인 맞교환
+ *  - 한 판을 조건 안에서 통째로 다시 뽑기 (블록 크기가 맞지 않아 뒤집기로 못 가는 분할용)
+ * 팀이 바뀐 판의 라인은 다른 판 배정을 기준으로 헝가리안 알고리즘으로 다시 정한다.
+ * 라인 고정은 맞교환 대상에서 빼고, 어긴 수를 다른 항목보다 훨씬 큰 비용으로 더해 지키게 한다.
+ */
+final class SessionScheduler {
+
+    // ── 비용 가중치 (같은 두 사람이 한 번 더 같은 팀 = 1) ────────────────────
+    private static final double W_TEAMMATE  = 1.0;
+    private static final double W_LANE      = 1.0;
+    /** 부 라인 1단계, 그 외 라인 2단계 */
+    private static final double W_PREF      = 0.5;
+    /** 판별 |점수 차| / 평균 점수 */
+    private static final double W_IMBALANCE = 5.0;
+    /** 플레이어별 누적 유불리(자기 팀 기준 점수 차 합 / 평균 점수)의 제곱 평균 */
+    private static final double W_CARRY     = 2.0;
+    /** 헝가리안 비용에서 같은 반복/선호 수준일 때 가중 점수 손실이 적은 쪽을 고르게 하는 작은 가중치 */
+    private static final double W_VALUE_TIE = 1e-3;
+    /** 라인 고정 위반 1건 (다른 비용 항목 전체보다 크게) */
+    private static final double W_LOCK      = 1e4;
+
+    private static final double START_TEMP = 1.0;
+    private static final double END_TEMP   = 0.01;
+
+    private final int n;
+    private final int rounds;
+    private final int teamSize;          // 라인 수 (0 이면 라인 배정 없음)
+    private final TeamConstraints constraints;
+    private final double[][] value;      // [p][lane] 가중 점수 (라인 없으면 [p][0] = 점수)
+    private final int[][]    pref;       // [p][lane] 0 = 주, 1 = 부, 2 = 그 외
+    private final int[]      lock;       // [p] 고정 라인 (없으면 -1)
+    private final int[][]    histTogether;
+    private final int[][]    histLane;
+    private final double     scale;
+
+    // ── 블록 (TeamConstraints 의 고정/분리 묶음) ──────────────────────────────
+    private final int[][] blockMembers;
+    private final int[][] blockSize;     // [b][color]
+    private final int[]   freeBlocks;
+
+    // ── 현재 일정 ───────────────────────────────────────────────────────────
+    private final int[][]     orient;    // [r][b] 팀1 로 가는 색
+    private final boolean[][] inTeam1;   // [r][p]
+    private final int[][]     lane;      // [r][p]
+    private final double[]    diff;      // [r] 팀1 - 팀2
+    private final int[][]     together;  // [p][q] (p < q), 이력 포함
+    private final int[][]     laneCount; // [p][lane], 이력 포함
+    private final double[]    advantage; // [p] 자기 팀 기준 점수 차 누적
+    private double sumSqAdvantage;
+    private double cost;
+
+    // ── 최선 일정 ───────────────────────────────────────────────────────────
+    private final boolean[][] bestTeam1;
+    private final int[][]     bestLane;
+    private double bestCost = Double.POSITIVE_INFINITY;
+
+    // ── scratch ─────────────────────────────────────────────────────────────
+    private final int[] scratch;         // 블록 후보 또는 같은 팀 플레이어 후보
+    private final int[] members;
+    private final double[][] laneCost;
+    private final int[] assigned;
+    private final HungarianAssignment hungarian;
+    private final boolean[] savedTeam1;
+    private final int[] savedLane;
+    private final int[] savedOrient;
+
+    /**
+     * @param score        플레이어별 점수
+     * @param primaryL     주 라인 ordinal (없으면 -1)
+     * @param secondaryL   부 라인 ordinal (없으면 -1)
+     * @param teamSize     라인 수 (인원이 라인 수의 2배가 아니면 0)
+     * @param histLane     [p][lane] 오늘 이미 맡은 횟수
+     * @param histTogether [p][q] 오늘 이미 같은 팀이었던 횟수
+     * @param lockL        고정 라인 ordinal (없으면 -1, 라인 배정이 없으면 모두 -1)
+     * @param rounds       짤 판 수
+     */
+    SessionScheduler(double[] score, int[] primaryL, int[] secondaryL, int teamSize,
+                     int[][] histLane, int[][] histTogether, int[] lockL, TeamConstraints constraints, int rounds) {
+        this.n            = score.length;
+        this.rounds       = rounds;
+        this.teamSize     = teamSize;
+        this.constraints  = constraints;
+        this.histLane     = histLane;
+        this.histTogether = histTogether;
+        this.lock         = lockL.clone();
+
+        int lanes = Math.max(1, teamSize);
+        value = new double[n][lanes];
+        pref  = new int[n][lanes];
+        double total = 0;
+        for (int p = 0; p < n; p++) {
+            total += score[p];
+            for (int l = 0; l < lanes; l++) {
+                if (teamSize == 0 || l == primaryL[p]) value[p][l] = score[p];
+                else if (l == secondaryL[p])           value[p][l] = score[p] * LaneAssignmentEngine.SECONDARY_FACTOR;
+                else                                   value[p][l] = score[p] * LaneAssignmentEngine.OFF_LANE_FACTOR;
+                // 주 라인이 없으면(미정) 어느 라인이든 같게 본다
+                pref[p][l] = primaryL[p] < 0 || l == primaryL[p] ? 0 : l == secondaryL[p] ? 1 : 2;
+            }
+        }
+        scale = total > 0 ? total / n : 1;
+
+        int blocks = constraints.blockCount();
+        List<List<Integer>> byBlock = new ArrayList<>();
+        for (int b = 0; b < blocks; b++) byBlock.add(new ArrayList<>());
+        blockSize = new int[blocks][2];
+        for (int p = 0; p < n; p++) {
+            byBlock.get(constraints.blockOf(p)).add(p);
+            blockSize[constraints.blockOf(p)][constraints.colorOf(p)]++;
+        }
+        blockMembers = new int[blocks][];
+        List<Integer> free = new ArrayList<>();
+        for (int b = 0; b < blocks; b++) {
+            blockMembers[b] = byBlock.get(b).stream().mapToInt(Integer::intValue).toArray();
+            if (constraints.pinnedOf(b) < 0) free.add(b);
+        }
+        freeBlocks = free.stream().mapToInt(Integer::intValue).toArray();
+
+        orient    = new int[rounds][blocks];
+        inTeam1   = new boolean[rounds][n];
+        lane      = new int[rounds][n];
+        diff      = new double[rounds];
+        together  = new int[n][n];
+        laneCount = new int[n][lanes];
+        advantage = new double[n];
+        for (int p = 0; p < n; p++) {
+            for (int q = p + 1; q < n; q++) together[p][q] = histTogether[p][q];
+            if (teamSize > 0) laneCount[p] = histLane[p].clone();
+        }
+        for (int[] row : lane) Arrays.fill(row, -1);
+
+        bestTeam1 = new boolean[rounds][n];
+        bestLane  = new int[rounds][n];
+
+        scratch       = new int[Math.max(blocks, n)];
+        members       = new int[lanes];
+        laneCost      = new double[lanes][lanes];
+        assigned      = new int[lanes];
+        hungarian     = teamSize > 0 ? new HungarianAssignment(teamSize) : null;
+        savedTeam1    = new boolean[n];
+        savedLane     = new int[n];
+        savedOrient   = new int[blocks];
+    }
+
+    /**
+     * 판마다 조건 안에서 무작위로 시작해 담금질한다. iterations 번 또는 deadline 까지.
+     */
+    void solve(Random rnd, int iterations, long deadline) {
+        for (int r = 0; r < rounds; r++) {
+            resample(r, rnd);
+            addRound(r);
+        }
+        saveBest();
+        if (freeBlocks.length == 0 && teamSize < 2) return;   // 움직일 수 있는 것이 없음
+
+        for (int it = 0; it < iterations; it++) {
+            if ((it & 255) == 0 && System.nanoTime() > deadline) break;
+            double temp = START_TEMP * Math.pow(END_TEMP / START_TEMP, (double) it / iterations);
+
+            int r = rnd.nextInt(rounds);
+            double before = cost;
+            System.arraycopy(inTeam1[r], 0, savedTeam1, 0, n);
+            System.arraycopy(lane[r], 0, savedLane, 0, n);
+            System.arraycopy(orient[r], 0, savedOrient, 0, savedOrient.length);
+
+            removeRound(r);
+            boolean moved;
+            int kind = rnd.nextInt(20);
+            if (kind == 0) {
+                resample(r, rnd);
+                moved = true;
+            } else if (teamSize >= 2 && (kind < 6 || freeBlocks.length == 0)) {
+                moved = swapLanes(r, rnd);
+            } else {
+                moved = flipBlocks(r, rnd);
+                if (moved) relane(r);
+            }
+            addRound(r);
+            if (!moved) { cost = before; continue; }
+
+            double delta = cost - before;
+            if (delta <= 0 || rnd.nextDouble() < Math.exp(-delta / temp)) {
+                if (cost < bestCost - 1e-9) saveBest();
+            } else {
+                removeRound(r);
+                System.arraycopy(savedTeam1, 0, inTeam1[r], 0, n);
+                System.arraycopy(savedLane, 0, lane[r], 0, n);
+                System.arraycopy(savedOrient, 0, orient[r], 0, savedOrient.length);
+                addRound(r);
+                cost = before;
+            }
+        }
+    }
+
+    int roundCount() { return rounds; }
+
+    /** r 번째 판 팀1 플레이어 인덱스 (라인 배정이 있으면 라인 순서) */
+    int[] team1(int r) { return team(r, true); }
+    int[] team2(int r) { return team(r, false); }
+    /** r 번째 판에서 p 의 라인 ordinal (라인 배정이 없으면 -1) */
+    int laneOf(int r, int p) { return bestLane[r][p]; }
+    double team1Score(int r) { return teamScore(r, true); }
+    double team2Score(int r) { return teamScore(r, false); }
+
+    /** 일정 안에서 이미 같은 팀이었던 두 사람이 다시 같은 팀이 된 횟수 (오늘 이력 포함해 판단) */
+    int teammateRepeats() {
+        int repeats = 0;
+        for (int p = 0; p < n; p++) {
+            for (int q = p + 1; q < n; q++) {
+                int h = histTogether[p][q], c = h;
+                for (int r = 0; r < rounds; r++) if (bestTeam1[r][p] == bestTeam1[r][q]) c++;
+                repeats += Math.max(0, c - 1) - Math.max(0, h - 1);
+            }
+        }
+        return repeats;
+    }
+
+    /** 최선 일정에서 고정 라인과 다른 라인을 맡은 횟수 (0 이어야 쓸 수 있는 일정) */
+    int lockViolations() {
+        int violations = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (int p = 0; p < n; p++) if (lock[p] >= 0 && bestLane[r][p] != lock[p]) violations++;
+        }
+        return violations;
+    }
+
+    /** 일정 안에서 이미 맡았던 라인을 다시 맡은 횟수 (오늘 이력 포함해 판단) */
+    int laneRepeats() {
+        if (teamSize == 0) return 0;
+        int repeats = 0;
+        for (int p = 0; p < n; p++) {
+            for (int l = 0; l < teamSize; l++) {
+                int h = histLane[p][l], c = h;
+                for (int r = 0; r < rounds; r++) if (bestLane[r][p] == l) c++;
+                repeats += Math.max(0, c - 1) - Math.max(0, h - 1);
+            }
+        }
+        return repeats;
+    }
+
+    // ── 증분 비용 ───────────────────────────────────────────────────────────
+
+    private void addRound(int r) {
+        boolean[] t = inTeam1[r];
+        for (int p = 0; p < n; p++) {
+            for (int q = p + 1; q < n; q++) {
+                if (t[p] == t[q]) cost += W_TEAMMATE * together[p][q]++;
+            }
+        }
+        if (teamSize > 0) {
+            for (int p = 0; p < n; p++) {
+                int l = lane[r][p];
+                cost += W_LANE * laneCount[p][l]++ + W_PREF * pref[p][l];
+                if (lock[p] >= 0 && lock[p] != l) cost += W_LOCK;
+            }
+        }
+        double d = 0;
+        for (int p = 0; p < n; p++) d += t[p] ? valueOf(r, p) : -valueOf(r, p);
+        diff[r] = d;
+        cost += W_IMBALANCE * Math.abs(d) / scale;
+        shiftAdvantage(r, d);
+    }
+
+    private void removeRound(int r) {
+        boolean[] t = inTeam1[r];
+        for (int p = 0; p < n; p++) {
+            for (int q = p + 1; q < n; q++) {
+                if (t[p] == t[q]) cost -= W_TEAMMATE * --together[p][q];
+            }
+        }
+        if (teamSize > 0) {
+            for (int p = 0; p < n; p++) {
+                int l = lane[r][p];
+                cost -= W_LANE * --laneCount[p][l] + W_PREF * pref[p][l];
+                if (lock[p] >= 0 && lock[p] != l) cost -= W_LOCK;
+            }
+        }
+        cost -= W_IMBALANCE * Math.abs(diff[r]) / scale;
+        shiftAdvantage(r, -diff[r]);
+    }
+
+    private void shiftAdvantage(int r, double d) {
+        double sumSq = 0;
+        for (int p = 0; p < n; p++) {
+            advantage[p] += inTeam1[r][p] ? d : -d;
+            sumSq += advantage[p] * advantage[p];
+        }
+        cost += W_CARRY * (sumSq - sumSqAdvantage) / (n * scale * scale);
+        sumSqAdvantage = sumSq;
+    }
+
+    private double valueOf(int r, int p) {
+        return value[p][teamSize > 0 ? lane[r][p] : 0];
+    }
+
+    // ── 이동 ────────────────────────────────────────────────────────────────
+
+    /** 팀1 인원이 유지되도록 자유 블록 하나(인원 변화 0) 또는 둘(변화가 서로 상쇄)을 뒤집는다 */
+    private boolean flipBlocks(int r, Random rnd) {
+        if (freeBlocks.length == 0) return false;
+        int b1 = freeBlocks[rnd.nextInt(freeBlocks.length)];
+        int d1 = flipDelta(r, b1);
+        int b2 = -1;
+        if (d1 != 0) {
+            int count = 0;
+            for (int b : freeBlocks) {
+                if (b != b1 && flipDelta(r, b) == -d1) scratch[count++] = b;
+            }
+            if (count == 0) return false;
+            b2 = scratch[rnd.nextInt(count)];
+        }
+        flip(r, b1);
+        if (b2 >= 0) flip(r, b2);
+        return true;
+    }
+
+    private int flipDelta(int r, int b) {
+        int o = orient[r][b];
+        return blockSize[b][o ^ 1] - blockSize[b][o];
+    }
+
+    private void flip(int r, int b) {
+        orient[r][b] ^= 1;
+        for (int p : blockMembers[b]) inTeam1[r][p] = !inTeam1[r][p];
+    }
+
+    /** 라인이 고정되지 않은 같은 팀 두 사람의 라인을 맞바꾼다 */
+    private boolean swapLanes(int r, Random rnd) {
+        int p = rnd.nextInt(n);
+        if (lock[p] >= 0) return false;
+        int count = 0;
+        for (int q = 0; q < n; q++) {
+            if (q != p && lock[q] < 0 && inTeam1[r][q] == inTeam1[r][p]) scratch[count++] = q;
+        }
+        if (count == 0) return false;
+        int q = scratch[rnd.nextInt(count)];
+        int l = lane[r][p];
+        lane[r][p] = lane[r][q];
+        lane[r][q] = l;
+        return true;
+    }
+
+    /** 조건을 만족하는 분할을 새로 뽑고 라인을 다시 정한다 */
+    private void resample(int r, Random rnd) {
+        List<Integer> order = constraints.sample(rnd);
+        Arrays.fill(inTeam1[r], false);
+        for (int i = 0; i < constraints.team1Size(); i++) inTeam1[r][order.get(i)] = true;
+        for (int b = 0; b < orient[r].length; b++) {
+            int pinned = constraints.pinnedOf(b);
+            if (pinned >= 0 || blockMembers[b].length == 0) {
+                orient[r][b] = Math.max(pinned, 0);
+            } else {
+                int p = blockMembers[b][0];
+                orient[r][b] = inTeam1[r][p] ? constraints.colorOf(p) : constraints.colorOf(p) ^ 1;
+            }
+        }
+        relane(r);
+    }
+
+    /**
+     * 판 r 의 두 팀 라인을 다른 판의 배정을 기준으로 다시 정한다 (r 의 기여는 빠져 있어야 함).
+     * 비용: 라인 고정 위반 + 반복 시 늘어나는 라인 중복 + 라인 선호 손실 + 아주 작은 가중 점수 손실.
+     */
+    private void relane(int r) {
+        if (teamSize == 0) return;
+        for (int side = 0; side < 2; side++) {
+            int k = 0;
+            for (int p = 0; p < n; p++) {
+                if (inTeam1[r][p] == (side == 0)) members[k++] = p;
+            }
+            for (int i = 0; i < teamSize; i++) {
+                int p = members[i];
+                double max = 0;
+                for (int l = 0; l < teamSize; l++) max = Math.max(max, value[p][l]);
+                for (int l = 0; l < teamSize; l++) {
+                    laneCost[i][l] = W_LANE * laneCount[p][l] + W_PREF * pref[p][l]
+                                   + W_VALUE_TIE * (max - value[p][l]) / scale
+                                   + (lock[p] >= 0 && lock[p] != l ? W_LOCK : 0);
+                }
+            }
+            hungarian.solve(laneCost, assigned);
+            for (int l = 0; l < teamSize; l++) lane[r][members[assigned[l]]] = l;
+        }
+    }
+
+    // ── 결과 ────────────────────────────────────────────────────────────────
+
+    private void saveBest() {
+        bestCost = cost;
+        for (int r = 0; r < rounds; r++) {
+            System.arraycopy(inTeam1[r], 0, bestTeam1[r], 0, n);
+            System.arraycopy(lane[r], 0, bestLane[r], 0, n);
+        }
+    }
+
+    private int[] team(int r, boolean first) {
+        List<Integer> out = new ArrayList<>();
+        for (int p = 0; p < n; p++) if (bestTeam1[r][p] == first) out.add(p);
+        if (teamSize > 0) out.sort(Comparator.comparingInt(p -> bestLane[r][p]));
+        return out.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private double teamScore(int r, boolean first) {
+        double s = 0;
+        for (int p : team(r, first)) s += value[p][teamSize > 0 ? bestLane[r][p] : 0];
+        return s;
+    }
+}
@@ -1,10 +1,14 @@
 package com.balance.service;
 
 import com.balance.entity.SummonerEntity;
+import com.balance.model.PlayerProfile;
+import com.balance.model.RankEntry;
 import com.balance.repository.SummonerRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,70 +25,204 @@ public class SummonerCacheService {
     @Autowired
     private SummonerRepository repository;
 
+    /** L1 캐시 용량 (저장 본문 크기 합 기준, 바이너리는 압축 해제 크기) */
+    @Value("${summoner.l1-cache.max-bytes:16777216}")
+    private long l1MaxBytes;
+
+    /** 저장 후 이 시간(분)이 지난 스냅샷은 stale 로 표시한다 (0 = 만료 없음) */
+    @Value("${summoner.revalidate.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    /** 스냅샷 저장 형식: binary (data_blob) 또는 json (data_json). 다른 형식으로 저장된 행은 읽을 때 바꿔 쓴다 */
+    @Value("${summoner.storage.format:binary}")
+    private String storageFormat;
+
+    /** binary 형식일 때 deflate 압축 여부 */
+    @Value("${summoner.storage.compress:true}")
+    private boolean storageCompress;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    // ── 캐시에서 플레이어 조회 ────────────────────────────────────────────────
-    public Optional<Map<String, Object>> findByDisplayName(String displayName) {
-        return repository.findByDisplayNameIgnoreCase(displayName)
-            .map(entity -> {
-                try {
-                    Map<String, Object> data = objectMapper.readValue(
-                        entity.getDataJson(), new TypeReference<>() {});
-                    data.put("fromCache", true);
-                    data.put("cachedAt",  entity.getUpdatedAt().format(FMT));
-                    return data;
-                } catch (Exception e) {
-                    return null;
-                }
-            })
-            .filter(Objects::nonNull);
+    /**
+     * DB 앞단의 L1 캐시: 파싱이 끝난 스냅샷(불변 record)을 최근 사용 순으로 보관.
+     * key 는 소문자 displayName (DB 조회가 대소문자 무시이므로 동일하게 맞춘다).
+     */
+    private final LinkedHashMap<String, Snapshot> l1 = new LinkedHashMap<>(64, 0.75f, true);
+    private long l1Bytes;
+    /** 무효화 횟수 — DB 를 읽는 사이 무효화가 있었으면 읽은 값을 L1 에 넣지 않는다 */
+    private long l1Generation;
+
+    private record Snapshot(PlayerProfile data, LocalDateTime updatedAt, String cachedAt, int weight) {}
+
+    // ── 캐시에서 플레이어 조회 (TTL 이 지났으면 stale 표시) ───────────────────
+    public Optional<PlayerProfile> findByDisplayName(String displayName) {
+        String key = l1Key(displayName);
+        Snapshot snap;
+        long generation;
+        synchronized (l1) {
+            snap = l1.get(key);
+            generation = l1Generation;
+        }
+        if (snap == null) {
+            SummonerEntity entity = repository.findByDisplayNameIgnoreCase(displayName).orElse(null);
+            if (entity == null) return Optional.empty();
+            snap = toSnapshot(entity);
+            if (snap == null) return Optional.empty();
+            if (needsMigration(entity)) migrate(entity, snap.data());
+            l1Put(key, snap, generation);
+        }
+        // 중첩 값은 불변이라 공유해도 안전
+        boolean stale = staleAfterMinutes > 0
+            && snap.updatedAt().isBefore(LocalDateTime.now().minusMinutes(staleAfterMinutes));
+        return Optional.of(snap.data().withCacheInfo(snap.cachedAt(), stale));
     }
 
     // ── 플레이어 데이터 저장 (upsert) ─────────────────────────────────────────
-    public void save(String displayName, String gameName, String tagLine, Map<String, Object> data) {
+    public void save(String displayName, String gameName, String tagLine, PlayerProfile data) {
         try {
-            String json = objectMapper.writeValueAsString(data);
             SummonerEntity entity = repository.findByDisplayNameIgnoreCase(displayName)
                 .orElse(new SummonerEntity());
             entity.setDisplayName(displayName);
             entity.setGameName(gameName);
             entity.setTagLine(tagLine);
-            entity.setDataJson(json);
+            writeData(entity, data);
             entity.setUpdatedAt(LocalDateTime.now());
+            applySummary(entity, data);
             repository.save(entity);
-        } catch (Exception ignored) {}
+        } catch (Exception ignored) {
+        } finally {
+            l1Invalidate(displayName);
+        }
     }
 
     // ── 저장된 소환사 목록 (요약 정보만) ─────────────────────────────────────
-    @SuppressWarnings("unchecked")
     public List<Map<String, Object>> listSummaries() {
-        return repository.findAllByOrderByUpdatedAtDesc().stream()
-            .map(entity -> {
+        return repository.findSummaries().stream()
+            .map(row -> {
                 Map<String, Object> s = new LinkedHashMap<>();
-                s.put("displayName", entity.getDisplayName());
-                s.put("gameName",    entity.getGameName());
-                s.put("tagLine",     entity.getTagLine());
-                s.put("cachedAt",    entity.getUpdatedAt().format(FMT));
-                try {
-                    Map<String, Object> data = objectMapper.readValue(
-                        entity.getDataJson(), new TypeReference<>() {});
-                    s.put("iconUrl", data.get("iconUrl"));
-                    s.put("score",   data.get("score"));
-                    Map<String, Object> rank = (Map<String, Object>) data.get("highestRank");
-                    if (rank != null) {
-                        s.put("tier", rank.get("tier"));
-                        s.put("rank", rank.get("rank"));
-                        s.put("lp",   rank.get("lp"));
-                    }
-                } catch (Exception ignored) {}
+                s.put("displayName", row.getDisplayName());
+                s.put("gameName",    row.getGameName());
+                s.put("tagLine",     row.getTagLine());
+                s.put("cachedAt",    row.getUpdatedAt().format(FMT));
+                s.put("iconUrl",     row.getIconUrl());
+                s.put("score",       row.getScore());
+                if (row.getTier() != null) {
+                    s.put("tier", row.getTier());
+                    s.put("rank", row.getTierRank());
+                    s.put("lp",   row.getLeaguePoints());
+                }
                 return s;
             })
             .collect(Collectors.toList());
     }
 
+    // ── 요약 컬럼 1회 백필 (요약 컬럼 추가 이전에 저장된 행) ─────────────────
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSummaries() {
+        List<SummonerEntity> pending = repository.findByScoreIsNull();
+        if (pending.isEmpty()) return;
+        for (SummonerEntity entity : pending) {
+            try {
+                applySummary(entity, readData(entity));
+            } catch (Exception e) {
+                entity.setScore(0);
+            }
+        }
+        repository.saveAll(pending);
+        System.out.println("[SummonerCache] 요약 컬럼 백필: " + pending.size() + "건");
+    }
+
+    private void applySummary(SummonerEntity entity, PlayerProfile data) {
+        RankEntry rank = data.highestRank();
+        entity.setIconUrl(data.iconUrl());
+        entity.setScore(data.score());
+        entity.setTier(rank != null ? rank.tier() : null);
+        entity.setTierRank(rank != null ? rank.rank() : null);
+        entity.setLeaguePoints(rank != null ? rank.lp() : null);
+    }
+
     // ── DB에서 삭제 ──────────────────────────────────────────────────────────
     @Transactional
     public void deleteByDisplayName(String displayName) {
         repository.deleteByDisplayNameIgnoreCase(displayName);
+        l1Invalidate(displayName);
+    }
+
+    // ── 스냅샷 본문 저장 형식 ────────────────────────────────────────────────
+    private boolean binaryFormat() {
+        return !"json".equalsIgnoreCase(storageFormat);
+    }
+
+    private void writeData(SummonerEntity entity, PlayerProfile data) throws Exception {
+        if (binaryFormat()) {
+            entity.setDataJson("");
+            entity.setDataBlob(ProfileSnapshotCodec.encode(data, storageCompress));
+        } else {
+            entity.setDataJson(objectMapper.writeValueAsString(data));
+            entity.setDataBlob(null);
+        }
+    }
+
+    private PlayerProfile readData(SummonerEntity entity) throws Exception {
+        byte[] blob = entity.getDataBlob();
+        return blob != null
+            ? ProfileSnapshotCodec.decode(blob)
+            : objectMapper.readValue(entity.getDataJson(), PlayerProfile.class);
+    }
+
+    /** 설정과 다른 형식(또는 압축 여부)으로 저장된 행인지 */
+    private boolean needsMigration(SummonerEntity entity) {
+        byte[] blob = entity.getDataBlob();
+        if (!binaryFormat()) return blob != null;
+        return blob == null || ProfileSnapshotCodec.isCompressed(blob) != storageCompress;
+    }
+
+    /** 읽은 행을 현재 설정 형식으로 바꿔 쓴다 (실패해도 다음 조회 때 다시 시도) */
+    private void migrate(SummonerEntity entity, PlayerProfile data) {
+        try {
+            writeData(entity, data);
+            repository.updateData(entity.getId(), entity.getUpdatedAt(), entity.getDataJson(), entity.getDataBlob());
+        } catch (Exception e) {
+            System.out.println("[SummonerCache] 저장 형식 변환 실패 " + entity.getDisplayName() + ": " + e.getMessage());
+        }
+    }
+
+    // ── L1 캐시 ──────────────────────────────────────────────────────────────
+    private Snapshot toSnapshot(SummonerEntity entity) {
+        try {
+            byte[] blob = entity.getDataBlob();
+            int weight = blob != null ? ProfileSnapshotCodec.bodySize(blob) : entity.getDataJson().length();
+            LocalDateTime updatedAt = entity.getUpdatedAt();
+            return new Snapshot(readData(entity), updatedAt, updatedAt.format(FMT), weight);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void l1Put(String key, Snapshot snap, long generation) {
+        if (snap.weight() > l1MaxBytes) return;
+        synchronized (l1) {
+            if (generation != l1Generation) return;
+            Snapshot old = l1.put(key, snap);
+            if (old != null) l1Bytes -= old.weight();
+            l1Bytes += snap.weight();
+            Iterator<Snapshot> it = l1.values().iterator();
+            while (l1Bytes > l1MaxBytes && it.hasNext()) {
+                l1Bytes -= it.next().weight();
+                it.remove();
+            }
+        }
+    }
+
+    private void l1Invalidate(String displayName) {
+        synchronized (l1) {
+            l1Generation++;
+            Snapshot old = l1.remove(l1Key(displayName));
+            if (old != null) l1Bytes -= old.weight();
+        }
+    }
+
+    private static String l1Key(String displayName) {
+        return displayName.toLowerCase(Locale.ROOT);
     }
 }
@@ -0,0 +1,267 @@
+package com.balance.service;
+
+import com.balance.model.PlayerProfile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 저장된 소환사 새로고침.
+ * 전체 새로고침: 브라우저가 한 명씩 순서대로 요청하던 것을 서버에서 동시에 돌린다.
+ * 백그라운드 재검증: TTL 이 지난(stale) 스냅샷을 응답한 뒤 크기 제한 있는 풀에서 다시 받는다
+ * (저장된 puuid 를 믿고 계정 조회를 건너뛴다 — Riot ID 가 다른 계정으로 옮겨 간 것은 ?refresh=true 나 전체 새로고침 때 반영된다).
+ * 같은 Riot ID 의 조회·새로고침은 동시에 하나만 진행하고 나머지는 그 결과를 같이 받는다 (저장도 한 번).
+ * 재검증은 따로 묶는다: 재검증 중에 들어온 조회·새로고침은 그 결과를 받지 않고, 끝난 뒤 Riot ID 를 다시 풀어 새로 받는다.
+ * Riot 호출은 모두 RiotApiService 를 거치므로 속도 제한(RiotRateLimiter)과
+ * 매치 상세 중복 제거가 전체 작업에 공통으로 적용된다.
+ */
+@Service
+public class SummonerRefreshService {
+
+    @Autowired
+    private RiotApiService riotApiService;
+
+    @Autowired
+    private SummonerCacheService summonerCacheService;
+
+    /** 동시에 새로고침할 소환사 수 (실제 호출 속도는 RiotRateLimiter 가 정한다) */
+    @Value("${summoner.bulk-refresh.concurrency:4}")
+    private int concurrency;
+
+    /** 백그라운드 재검증 동시 진행 인원 / 대기열 길이 (가득 차면 이번 요청은 건너뛰고 다음 조회 때 다시 건다) */
+    @Value("${summoner.revalidate.concurrency:2}")
+    private int revalidateConcurrency;
+
+    @Value("${summoner.revalidate.queue-size:64}")
+    private int revalidateQueueSize;
+
+    /** 재검증이 실패한 소환사는 이 시간 동안 다시 재검증하지 않는다 (Riot 장애·삭제된 계정에 조회마다 호출하지 않게) */
+    @Value("${summoner.revalidate.failure-backoff-seconds:300}")
+    private long revalidateBackoffSeconds;
+
+    private ExecutorService executor;
+
+    /** 재검증은 스레드를 붙잡지 않는다 — 진행 중인 개수만 permit 으로 제한하고 나머지는 대기열에서 순서를 기다린다 */
+    private Semaphore revalidatePermits;
+    private ArrayBlockingQueue<Runnable> revalidateQueue;
+
+    /** 정규화한 Riot ID → 진행 중인 조회 (캐시 미스 조회, 새로고침 — Riot ID 를 다시 푼다) */
+    private final ConcurrentHashMap<String, CompletableFuture<PlayerProfile>> inFlight = new ConcurrentHashMap<>();
+
+    /** 정규화한 Riot ID → 진행 중인 백그라운드 재검증 (저장된 puuid 를 믿는다) */
+    private final ConcurrentHashMap<String, CompletableFuture<PlayerProfile>> revalidating = new ConcurrentHashMap<>();
+
+    /** 정규화한 Riot ID → 마지막 재검증 실패 시각 (ms). 어떤 경로로든 조회에 성공하면 지운다 */
+    private final ConcurrentHashMap<String, Long> revalidateFailedAt = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger seq = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread t = new Thread(r, "summoner-refresh-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        revalidatePermits = new Semaphore(Math.max(1, revalidateConcurrency));
+        revalidateQueue   = new ArrayBlockingQueue<>(Math.max(1, revalidateQueueSize));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        revalidateQueue.clear();
+    }
+
+    /** 한 명 새로고침 후 저장 (저장된 스냅샷이 있으면 새 판만 받아 합친다) */
+    public PlayerProfile refresh(String displayName, String gameName, String tagLine) throws Exception {
+        PlayerProfile previous = summonerCacheService.findByDisplayName(displayName).orElse(null);
+        return await(lookup(displayName, gameName, tagLine, previous));
+    }
+
+    /**
+     * Riot 에서 조회해 저장한다. 같은 Riot ID 를 이미 받고 있으면 새로 시작하지 않고 그 future 를 돌려준다.
+     * 백그라운드 재검증이 진행 중이면 (계정 조회를 건너뛰는 작업이라) 그것이 끝난 뒤 새로 받는다 — 저장이 겹치지 않게.
+     * @param previous 이전 스냅샷 (없으면 null → 전체 조회)
+     */
+    public CompletableFuture<PlayerProfile> lookup(String displayName, String gameName, String tagLine,
+                                                   PlayerProfile previous) {
+        return singleFlight(inFlight, displayName, () -> {
+            CompletableFuture<PlayerProfile> running = revalidating.get(riotIdKey(displayName));
+            if (running == null) return load(displayName, gameName, tagLine, previous, false);
+            // 재검증이 저장한 결과가 있으면 그것을 이전 스냅샷으로 (새 판만 받게)
+            return running.handle((data, err) -> data != null ? data : previous)
+                .thenCompose(prev -> load(displayName, gameName, tagLine, prev, false));
+        });
+    }
+
+    /**
+     * stale 스냅샷의 백그라운드 새로고침. 이미 같은 소환사를 받고 있으면 그 작업을 돌려준다.
+     * 최근 재검증이 실패한 소환사는 failure-backoff-seconds 동안 건너뛴다.
+     * 사용자 조회·새로고침이 이미 진행 중이면 (Riot ID 까지 다시 푸는 작업이라) 그 future 를 돌려준다.
+     * @return 새로고침 결과 (대기열이 가득 차거나 실패 후 대기 중이라 건너뛰면 실패한 future)
+     */
+    public CompletableFuture<PlayerProfile> revalidate(String displayName, String gameName, String tagLine) {
+        String key = riotIdKey(displayName);
+        Long failedAt = revalidateFailedAt.get(key);
+        if (failedAt != null) {
+            if (System.currentTimeMillis() - failedAt < revalidateBackoffSeconds * 1000) {
+                return CompletableFuture.failedFuture(
+                    new IllegalStateException("최근 재검증 실패로 대기 중: " + displayName));
+            }
+            revalidateFailedAt.remove(key, failedAt);
+        }
+        CompletableFuture<PlayerProfile> user = inFlight.get(key);
+        if (user != null) return user;
+        return singleFlight(revalidating, displayName, () -> {
+            CompletableFuture<PlayerProfile> task = new CompletableFuture<>();
+            Runnable job = () -> {
+                CompletableFuture<PlayerProfile> work;
+                try {
+                    work = CompletableFuture
+                        .supplyAsync(() -> summonerCacheService.findByDisplayName(displayName).orElse(null),
+                                     riotApiService.dbExecutor())
+                        .thenCompose(previous -> load(displayName, gameName, tagLine, previous, true));
+                } catch (RuntimeException e) {   // 종료 중이라 DB 풀이 거절한 경우
+                    work = CompletableFuture.failedFuture(e);
+                }
+                work.whenComplete((data, err) -> {
+                    releaseRevalidate();
+                    if (err == null) {
+                        task.complete(data);
+                        return;
+                    }
+                    Throwable cause = RiotApiService.rootCause(err);
+                    revalidateFailedAt.put(key, System.currentTimeMillis());
+                    System.out.println("[Revalidate] " + displayName + " 실패 (" + revalidateBackoffSeconds
+                        + "초 동안 재검증 안 함): " + cause.getMessage());
+                    task.completeExceptionally(cause);
+                });
+            };
+            if (!revalidateQueue.offer(job)) {
+                throw new RejectedExecutionException("재검증 대기열이 가득 찼습니다: " + displayName);
+            }
+            startRevalidations();
+            return task;
+        });
+    }
+
+    /** 남은 permit 만큼 대기열에서 꺼내 시작한다 (시작만 하고 기다리지 않는다) */
+    private void startRevalidations() {
+        while (!revalidateQueue.isEmpty() && revalidatePermits.tryAcquire()) {
+            Runnable job = revalidateQueue.poll();
+            if (job == null) revalidatePermits.release();
+            else             job.run();
+        }
+    }
+
+    /** 끝난 재검증의 permit 을 돌려주고 기다리던 다음 것을 시작한다 */
+    private void releaseRevalidate() {
+        revalidatePermits.release();
+        startRevalidations();
+    }
+
+    /**
+     * @param trustStoredPuuid 백그라운드 재검증만 true — 저장된 puuid 로 계정 조회를 건너뛴다.
+     *                         사용자가 부른 조회/새로고침은 Riot ID 를 다시 풀어 닉네임 변경·계정 이전을 반영한다.
+     */
+    private CompletableFuture<PlayerProfile> load(String displayName, String gameName, String tagLine,
+                                                  PlayerProfile previous, boolean trustStoredPuuid) {
+        // 저장(JPA)은 HttpClient 응답 스레드가 아니라 DB 전용 풀에서
+        return riotApiService.getPlayerDataAsync(gameName, tagLine, previous, trustStoredPuuid).thenApplyAsync(data -> {
+            summonerCacheService.save(displayName, gameName, tagLine, data);
+            revalidateFailedAt.remove(riotIdKey(displayName));
+            return data;
+        }, riotApiService.dbExecutor());
+    }
+
+    /**
+     * flights 안에서 key 별로 동시에 하나만 start 를 실행한다. 끝나면 (성공이든 실패든) 자리를 비워 다음 요청은 새로 시작한다.
+     * 실패는 CompletionException 을 벗긴 원래 예외로 전달한다.
+     */
+    private static CompletableFuture<PlayerProfile> singleFlight(
+            ConcurrentHashMap<String, CompletableFuture<PlayerProfile>> flights, String displayName,
+            Supplier<CompletableFuture<PlayerProfile>> start) {
+        String key = riotIdKey(displayName);
+        CompletableFuture<PlayerProfile> mine  = new CompletableFuture<>();
+        CompletableFuture<PlayerProfile> other = flights.putIfAbsent(key, mine);
+        if (other != null) return other;
+
+        CompletableFuture<PlayerProfile> work;
+        try {
+            work = start.get();
+        } catch (RuntimeException e) {   // RejectedExecutionException 등
+            work = CompletableFuture.failedFuture(e);
+        }
+        work.whenComplete((data, err) -> {
+            flights.remove(key, mine);
+            if (err != null) mine.completeExceptionally(RiotApiService.rootCause(err));
+            else             mine.complete(data);
+        });
+        return mine;
+    }
+
+    /** Riot ID 는 대소문자를 구분하지 않는다 (SummonerCacheService 의 키와 같은 규칙) */
+    private static String riotIdKey(String displayName) {
+        return displayName.toLowerCase(Locale.ROOT);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * 저장된 소환사 전체를 새로고침한다. 한 명이 끝날 때마다 onResult 로 결과를 넘긴다.
+     * 결과: { displayName, ok: true, data } 또는 { displayName, ok: false, error }
+     * @return 대상 목록 (반환 시점에 작업은 이미 시작됨) 과 전체 완료 future
+     */
+    public BulkRefresh refreshAll(Consumer<Map<String, Object>> onResult) {
+        List<Map<String, Object>> targets = summonerCacheService.listSummaries();
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[targets.size()];
+        AtomicInteger failed = new AtomicInteger();
+
+        for (int i = 0; i < targets.size(); i++) {
+            Map<String, Object> s = targets.get(i);
+            String displayName = (String) s.get("displayName");
+            String gameName    = (String) s.get("gameName");
+            String tagLine     = (String) s.get("tagLine");
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("displayName", displayName);
+                try {
+                    PlayerProfile data = refresh(displayName, gameName, tagLine);
+                    line.put("ok",   true);
+                    line.put("data", data);
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    line.put("ok",    false);
+                    line.put("error", e.getMessage());
+                    System.out.println("[Refresh] " + displayName + " 실패: " + e.getMessage());
+                }
+                onResult.accept(line);
+            }, executor);
+        }
+        return new BulkRefresh(targets.size(), failed, CompletableFuture.allOf(tasks));
+    }
+
+    public record BulkRefresh(int total, AtomicInteger failed, CompletableFuture<Void> done) {}
+}
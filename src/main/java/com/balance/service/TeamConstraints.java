@@ -0,0 +1,234 @@
+package com.balance.service;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * 고정/분리 조건 사전 처리.
+ *
+ * 고정 그룹은 union-find 로 하나의 묶음(super-node)으로 합치고, 분리 조건은 묶음 사이의 간선으로 보고
+ * 2-색칠한다. 간선으로 이어진 묶음들(블록)은 색 0 쪽과 색 1 쪽 중 어느 쪽이 팀1 로 가는지(방향)만 고르면 되므로,
+ * 가능한 분할 = 블록별 방향 선택 중 팀1 인원이 size1 이 되는 것.
+ * 로비 밖 인덱스는 기존 isValidSplit 과 같이 "팀1 이 아님" 으로 보고, 가상 노드 하나로 합쳐 방향을 고정한다.
+ *
+ * 모순(같은 팀 고정 + 분리, 홀수 순환, 인원 불일치)이 있으면 생성 시 IllegalArgumentException 을 던진다.
+ */
+final class TeamConstraints {
+
+    private final int n;
+    private final int size1;
+    private final int[] block;      // 플레이어 → 블록 번호
+    private final int[] color;      // 플레이어 → 블록 안에서의 색 (0/1)
+    private final int[] sizeA;      // 블록별 색 0 인원
+    private final int[] sizeB;      // 블록별 색 1 인원
+    private final int[] pinned;     // 블록별 고정 방향 (-1 = 자유, 0 = 색 0 이 팀1, 1 = 색 1 이 팀1)
+    private final double[][] ways;  // ways[b][c] = 블록 b.. 의 방향 선택 중 팀1 인원이 c 가 되는 경우의 수
+
+    /**
+     * @param names 플레이어 표시 이름 (오류 메시지용)
+     * @param size1 팀1 인원
+     */
+    static TeamConstraints of(List<String> names, int size1,
+                              List<List<Integer>> fixedGroups, List<List<Integer>> separateGroups) {
+        return new TeamConstraints(names, size1, fixedGroups, separateGroups);
+    }
+
+    private TeamConstraints(List<String> names, int size1,
+                            List<List<Integer>> fixedGroups, List<List<Integer>> separateGroups) {
+        this.n     = names.size();
+        this.size1 = size1;
+        int outside = n;    // 로비 밖 인덱스를 모두 모은 가상 노드 (항상 팀2)
+
+        // ── 고정 그룹 합치기 ─────────────────────────────────────────────────
+        int[] parent = new int[n + 1];
+        for (int i = 0; i <= n; i++) parent[i] = i;
+        for (List<Integer> g : fixedGroups) {
+            if (g.size() < 2) continue;
+            int first = node(g.get(0));
+            for (int i = 1; i < g.size(); i++) union(parent, first, node(g.get(i)));
+        }
+
+        // ── 분리 조건: 묶음 사이 간선 ────────────────────────────────────────
+        List<List<Integer>> adj = new ArrayList<>(n + 1);
+        for (int i = 0; i <= n; i++) adj.add(new ArrayList<>());
+        for (List<Integer> g : separateGroups) {
+            if (g.size() < 2) continue;
+            for (int i = 0; i < g.size(); i++) {
+                for (int j = i + 1; j < g.size(); j++) {
+                    int a = node(g.get(i)), b = node(g.get(j));
+                    int ra = find(parent, a), rb = find(parent, b);
+                    if (ra == rb) {
+                        throw new IllegalArgumentException(String.format(
+                            "'%s' 와(과) '%s' 는 같은 팀으로 고정되어 있어 분리할 수 없습니다",
+                            name(names, a), name(names, b)));
+                    }
+                    adj.get(ra).add(rb);
+                    adj.get(rb).add(ra);
+                }
+            }
+        }
+
+        // ── 2-색칠 (묶음 단위) ───────────────────────────────────────────────
+        int[] rootColor = new int[n + 1];
+        int[] rootBlock = new int[n + 1];
+        Arrays.fill(rootColor, -1);
+        List<int[]> sizes = new ArrayList<>();
+        List<Integer> pins = new ArrayList<>();
+        // 가상 노드의 블록을 0 번으로 먼저 만들어 두면 방향 고정이 간단하다
+        int[] starts = new int[n + 1];
+        starts[0] = find(parent, outside);
+        for (int i = 0; i < n; i++) starts[i + 1] = find(parent, i);
+        for (int start : starts) {
+            if (rootColor[start] >= 0) continue;
+            int b = sizes.size();
+            List<Integer> members = new ArrayList<>();
+            Deque<Integer> queue = new ArrayDeque<>();
+            rootColor[start] = 0;
+            rootBlock[start] = b;
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                int r = queue.poll();
+                members.add(r);
+                for (int next : adj.get(r)) {
+                    if (rootColor[next] < 0) {
+                        rootColor[next] = rootColor[r] ^ 1;
+                        rootBlock[next] = b;
+                        queue.add(next);
+                    } else if (rootColor[next] == rootColor[r]) {
+                        throw new IllegalArgumentException(
+                            "분리 조건이 서로 모순되어 두 팀으로 나눌 수 없습니다: " + describe(names, parent, members, next));
+                    }
+                }
+            }
+            sizes.add(new int[2]);
+            // 0 번 블록은 가상 노드(색 0)에서 시작했고 가상 노드는 팀1 이 아니므로 색 1 이 팀1
+            pins.add(b == 0 ? 1 : -1);
+        }
+
+        block = new int[n];
+        color = new int[n];
+        for (int i = 0; i < n; i++) {
+            int r = find(parent, i);
+            block[i] = rootBlock[r];
+            color[i] = rootColor[r];
+            sizes.get(block[i])[color[i]]++;
+        }
+        int blocks = sizes.size();
+        sizeA  = new int[blocks];
+        sizeB  = new int[blocks];
+        pinned = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            sizeA[b]  = sizes.get(b)[0];
+            sizeB[b]  = sizes.get(b)[1];
+            pinned[b] = pins.get(b);
+        }
+
+        // ── 팀 인원을 맞출 수 있는지 (블록별 방향 선택의 부분합) ─────────────
+        ways = new double[blocks + 1][n + 1];
+        ways[blocks][0] = 1;
+        for (int b = blocks - 1; b >= 0; b--) {
+            for (int c = 0; c <= n; c++) {
+                double w = 0;
+                if (pinned[b] != 1 && c >= sizeA[b]) w += ways[b + 1][c - sizeA[b]];
+                if (pinned[b] != 0 && c >= sizeB[b]) w += ways[b + 1][c - sizeB[b]];
+                ways[b][c] = w;
+            }
+        }
+        if (size1 < 0 || size1 > n || ways[0][size1] == 0) {
+            throw new IllegalArgumentException(String.format(
+                "고정/분리 조건으로는 팀 인원을 %d명 / %d명으로 맞출 수 없습니다", size1, n - size1));
+        }
+    }
+
+    int playerCount()     { return n; }
+    int team1Size()       { return size1; }
+    int blockCount()      { return sizeA.length; }
+    int blockOf(int p)    { return block[p]; }
+    int colorOf(int p)    { return color[p]; }
+    /** -1 = 자유, 0/1 = 해당 색이 팀1 로 고정 */
+    int pinnedOf(int b)   { return pinned[b]; }
+    /** 양 팀 인원이 같고 로비 밖 인덱스에 묶인 플레이어가 없으면 true (두 팀을 바꿔도 똑같이 유효) */
+    boolean symmetric()   { return size1 * 2 == n && sizeA[0] + sizeB[0] == 0; }
+
+    /** 블록별 방향(orient[b] 색이 팀1)으로 플레이어 p 가 팀1 인지 */
+    boolean inTeam1(int p, int[] orient) {
+        return color[p] == orient[block[p]];
+    }
+
+    /**
+     * 조건을 만족하는 모든 팀1 비트마스크를 넘긴다 (n ≤ 31).
+     */
+    void forEachSplit(IntConsumer consumer) {
+        int[] maskA = new int[blockCount()], maskB = new int[blockCount()];
+        for (int p = 0; p < n; p++) {
+            if (color[p] == 0) maskA[block[p]] |= 1 << p;
+            else               maskB[block[p]] |= 1 << p;
+        }
+        enumerate(0, size1, 0, maskA, maskB, consumer);
+    }
+
+    private void enumerate(int b, int remaining, int mask, int[] maskA, int[] maskB, IntConsumer consumer) {
+        if (b == blockCount()) { consumer.accept(mask); return; }
+        if (pinned[b] != 1 && remaining >= sizeA[b] && ways[b + 1][remaining - sizeA[b]] > 0) {
+            enumerate(b + 1, remaining - sizeA[b], mask | maskA[b], maskA, maskB, consumer);
+        }
+        if (pinned[b] != 0 && remaining >= sizeB[b] && ways[b + 1][remaining - sizeB[b]] > 0) {
+            enumerate(b + 1, remaining - sizeB[b], mask | maskB[b], maskA, maskB, consumer);
+        }
+    }
+
+    /**
+     * 조건을 만족하는 분할 하나를 균등하게 뽑는다.
+     * @return 앞 size1 개가 팀1, 나머지가 팀2 인 플레이어 인덱스 (각 팀 안의 순서도 무작위)
+     */
+    List<Integer> sample(Random rnd) {
+        int[] orient = new int[blockCount()];
+        int remaining = size1;
+        for (int b = 0; b < blockCount(); b++) {
+            double w0 = pinned[b] != 1 && remaining >= sizeA[b] ? ways[b + 1][remaining - sizeA[b]] : 0;
+            double w1 = pinned[b] != 0 && remaining >= sizeB[b] ? ways[b + 1][remaining - sizeB[b]] : 0;
+            orient[b] = rnd.nextDouble() * (w0 + w1) < w0 ? 0 : 1;
+            remaining -= orient[b] == 0 ? sizeA[b] : sizeB[b];
+        }
+        List<Integer> t1 = new ArrayList<>(), t2 = new ArrayList<>();
+        for (int p = 0; p < n; p++) (inTeam1(p, orient) ? t1 : t2).add(p);
+        Collections.shuffle(t1, rnd);
+        Collections.shuffle(t2, rnd);
+        t1.addAll(t2);
+        return t1;
+    }
+
+    private int node(int idx) {
+        return idx >= 0 && idx < n ? idx : n;
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a), rb = find(parent, b);
+        if (ra != rb) parent[Math.max(ra, rb)] = Math.min(ra, rb);
+    }
+
+    private String name(List<String> names, int node) {
+        if (node == n) return "로비 밖 플레이어";
+        String s = names.get(node);
+        return s == null || s.isEmpty() ? "#" + node : s;
+    }
+
+    /** 모순이 난 블록의 플레이어 이름 목록 */
+    private String describe(List<String> names, int[] parent, List<Integer> roots, int extra) {
+        Set<Integer> rs = new HashSet<>(roots);
+        rs.add(extra);
+        StringJoiner sj = new StringJoiner(", ");
+        for (int i = 0; i <= n; i++) {
+            if (rs.contains(find(parent, i))) sj.add(name(names, i));
+        }
+        return sj.toString();
+    }
+}
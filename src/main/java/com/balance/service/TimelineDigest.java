@@ -0,0 +1,194 @@
+package com.balance.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 타임라인(match-v5 timelines) 문서에서 화면에 쓰는 이벤트만 모든 참가자 몫을 한꺼번에 뽑아 둔 것.
+ * JsonParser 로 frames[].events[] 를 한 번만 훑고, 용량 대부분인 participantFrames 는 skipChildren 으로 건너뛴다.
+ * ITEM_UNDO 는 앞서 나온 같은 참가자·같은 아이템의 마지막 구매를 지우는 것으로 처리하고,
+ * 이벤트는 분 순서로 넣으므로 (같은 분이면 나온 순서) 따로 정렬하지 않는다.
+ * 참가자별 목록은 forParticipant 가 공용 목록을 걸러 만든다 (킬 이벤트는 킬/데스/어시 중 하나로 바뀐다).
+ */
+final class TimelineDigest {
+
+    enum Kind { ITEM, KILL, DEATH, ASSIST, OBJECTIVE }
+
+    /** @param itemId    ITEM 일 때 아이템 ID
+     *  @param objective OBJECTIVE 일 때 몬스터 (monsterSubType, 없으면 monsterType) */
+    record Event(Kind kind, int minute, int itemId, String objective) {}
+
+    private enum Type { PURCHASE, CHAMPION_KILL, OBJECTIVE }
+
+    /**
+     * 공용 목록의 이벤트 한 개.
+     * @param participantId PURCHASE 는 구매자, CHAMPION_KILL 은 killerId
+     * @param assistMask    CHAMPION_KILL 의 어시스트 참가자 비트 (bit i = 참가자 i, 0~63)
+     * @param seq           문서에서 나온 순서 (ITEM_UNDO 가 지울 구매를 고를 때 쓴다)
+     */
+    private record Entry(Type type, int minute, int participantId, int victimId, long assistMask,
+                         int itemId, String objective, int seq) {}
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final List<Entry> entries;
+
+    private TimelineDigest(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    static TimelineDigest read(byte[] json) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (JsonParser p = JSON.createParser(json)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("타임라인 문서가 객체가 아닙니다");
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                if (p.nextToken() == JsonToken.START_OBJECT && "info".equals(field)) readInfo(p, entries);
+                else p.skipChildren();
+            }
+        }
+        return new TimelineDigest(List.copyOf(entries));
+    }
+
+    /** 한 참가자 기준 이벤트 (분 순서) */
+    List<Event> forParticipant(int pid) {
+        List<Event> events = new ArrayList<>();
+        for (Entry e : entries) {
+            switch (e.type()) {
+                case PURCHASE -> {
+                    if (e.participantId() == pid) events.add(new Event(Kind.ITEM, e.minute(), e.itemId(), null));
+                }
+                case CHAMPION_KILL -> {
+                    if (e.participantId() == pid)   events.add(new Event(Kind.KILL,   e.minute(), 0, null));
+                    else if (e.victimId() == pid)   events.add(new Event(Kind.DEATH,  e.minute(), 0, null));
+                    else if (assisted(e.assistMask(), pid)) events.add(new Event(Kind.ASSIST, e.minute(), 0, null));
+                }
+                case OBJECTIVE -> events.add(new Event(Kind.OBJECTIVE, e.minute(), 0, e.objective()));
+            }
+        }
+        return events;
+    }
+
+    private static boolean assisted(long mask, int pid) {
+        return pid >= 0 && pid < 64 && (mask & (1L << pid)) != 0;
+    }
+
+    private static void readInfo(JsonParser p, List<Entry> events) throws IOException {
+        int seq = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            if (p.nextToken() != JsonToken.START_ARRAY || !"frames".equals(field)) { p.skipChildren(); continue; }
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                if (p.currentToken() != JsonToken.START_OBJECT) { p.skipChildren(); continue; }
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String frameField = p.currentName();
+                    if (p.nextToken() != JsonToken.START_ARRAY || !"events".equals(frameField)) { p.skipChildren(); continue; }
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        if (p.currentToken() == JsonToken.START_OBJECT) readEvent(p, events, seq++);
+                        else p.skipChildren();
+                    }
+                }
+            }
+        }
+    }
+
+    /** 이벤트 객체 하나 — 필드 순서가 정해져 있지 않으므로 끝까지 읽은 뒤 판단한다 */
+    private static void readEvent(JsonParser p, List<Entry> events, int seq) throws IOException {
+        String type = "", monsterType = "", monsterSubType = "";
+        int timestamp = 0, participantId = 0, itemId = 0, beforeItemId = 0, killerId = 0, victimId = 0;
+        long assists = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "type"               -> type           = text(p);
+                case "timestamp"          -> timestamp      = num(p);
+                case "participantId"      -> participantId  = num(p);
+                case "itemId"             -> itemId         = num(p);
+                case "beforeActionItemId" -> beforeItemId   = num(p);
+                case "killerId"           -> killerId       = num(p);
+                case "victimId"           -> victimId       = num(p);
+                case "monsterType"        -> monsterType    = text(p);
+                case "monsterSubType"     -> monsterSubType = text(p);
+                case "assistingParticipantIds" -> {
+                    assists = 0;
+                    if (t != JsonToken.START_ARRAY) { p.skipChildren(); break; }
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        int aid = num(p);
+                        if (aid >= 0 && aid < 64) assists |= 1L << aid;
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+
+        int minute = timestamp / 60000;
+        switch (type) {
+            case "ITEM_PURCHASED" -> add(events,
+                new Entry(Type.PURCHASE, minute, participantId, 0, 0, itemId, null, seq));
+            case "ITEM_UNDO"      -> undo(events, participantId, beforeItemId);
+            case "CHAMPION_KILL"  -> add(events,
+                new Entry(Type.CHAMPION_KILL, minute, killerId, victimId, assists, 0, null, seq));
+            case "ELITE_MONSTER_KILL" -> add(events, new Entry(Type.OBJECTIVE, minute, 0, 0, 0, 0,
+                monsterSubType.isEmpty() ? monsterType : monsterSubType, seq));
+            default -> {}
+        }
+    }
+
+    /** 분 순서 유지: 보통은 끝에 붙고, 순서가 어긋난 이벤트만 같은 분의 마지막 뒤로 끼운다 */
+    private static void add(List<Entry> events, Entry e) {
+        int at = events.size();
+        while (at > 0 && events.get(at - 1).minute() > e.minute()) at--;
+        events.add(at, e);
+    }
+
+    /**
+     * 되돌린 구매 = 같은 참가자의 같은 아이템 중 문서에서 가장 늦게 나온 구매.
+     * 목록은 분 순서라 순서가 어긋난 이벤트가 있으면 목록 끝이 가장 늦게 나온 것이 아닐 수 있다.
+     */
+    private static void undo(List<Entry> events, int participantId, int itemId) {
+        int at = -1;
+        for (int i = 0; i < events.size(); i++) {
+            Entry e = events.get(i);
+            if (e.type() == Type.PURCHASE && e.participantId() == participantId && e.itemId() == itemId
+                && (at < 0 || e.seq() > events.get(at).seq())) at = i;
+        }
+        if (at >= 0) events.remove(at);
+    }
+
+    // ── JsonNode.asText() / asInt() 와 같은 변환 ─────────────────────────────
+    private static String text(JsonParser p) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_STRING, VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_TRUE, VALUE_FALSE -> p.getText();
+            case START_OBJECT, START_ARRAY -> { p.skipChildren(); yield ""; }
+            default -> "";
+        };
+    }
+
+    private static int num(JsonParser p) throws IOException {
+        switch (p.currentToken()) {
+            case VALUE_NUMBER_INT:   return (int) p.getLongValue();
+            case VALUE_NUMBER_FLOAT: return (int) p.getDoubleValue();
+            case VALUE_TRUE:         return 1;
+            case VALUE_STRING: {
+                String s = p.getText().trim();
+                try {
+                    return Integer.parseInt(s);
+                } catch (NumberFormatException e) {
+                    try { return (int) Double.parseDouble(s); } catch (NumberFormatException e2) { return 0; }
+                }
+            }
+            case START_OBJECT:
+            case START_ARRAY:
+                p.skipChildren();
+                return 0;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.balance.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 작은 로비(n ≤ 10)의 모든 팀1 비트마스크를 직접 훑는 기준 구현.
+ * 조건 판정은 예전 BalanceService.isValidSplit 과 같다 (로비 밖 인덱스는 "팀1 이 아님").
+ */
+final class BruteForceSplits {
+
+    private BruteForceSplits() {}
+
+    record Groups(List<List<Integer>> fixed, List<List<Integer>> separate) {}
+
+    /**
+     * 무작위 고정/분리 조건. 가끔 로비 밖 인덱스와 세 명짜리 분리 그룹을 섞어 모순인 입력도 나오게 한다.
+     */
+    static Groups randomGroups(Random rnd, int n) {
+        List<List<Integer>> fixed = new ArrayList<>(), separate = new ArrayList<>();
+        int fixedCount = rnd.nextInt(3), separateCount = rnd.nextInt(3);
+        for (int g = 0; g < fixedCount; g++)    fixed.add(randomGroup(rnd, n, 2 + rnd.nextInt(2)));
+        for (int g = 0; g < separateCount; g++) separate.add(randomGroup(rnd, n, rnd.nextInt(8) == 0 ? 3 : 2));
+        return new Groups(fixed, separate);
+    }
+
+    private static List<Integer> randomGroup(Random rnd, int n, int size) {
+        List<Integer> g = new ArrayList<>();
+        for (int i = 0; i < size; i++) g.add(rnd.nextInt(12) == 0 ? n + rnd.nextInt(3) : rnd.nextInt(n));
+        return g;
+    }
+
+    static boolean valid(int mask, Groups groups) {
+        for (List<Integer> g : groups.fixed()) {
+            if (g.size() < 2) continue;
+            boolean first = inTeam1(mask, g.get(0));
+            for (int i = 1; i < g.size(); i++) if (inTeam1(mask, g.get(i)) != first) return false;
+        }
+        for (List<Integer> g : groups.separate()) {
+            for (int i = 0; i < g.size(); i++) {
+                for (int j = i + 1; j < g.size(); j++) {
+                    if (inTeam1(mask, g.get(i)) == inTeam1(mask, g.get(j))) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** 팀1 인원이 size1 이고 조건을 만족하는 모든 팀1 비트마스크 (오름차순) */
+    static List<Integer> validMasks(int n, int size1, Groups groups) {
+        List<Integer> masks = new ArrayList<>();
+        for (int mask = 0; mask < 1 << n; mask++) {
+            if (Integer.bitCount(mask) == size1 && valid(mask, groups)) masks.add(mask);
+        }
+        return masks;
+    }
+
+    static int mask(List<Integer> team1) {
+        int mask = 0;
+        for (int i : team1) mask |= 1 << i;
+        return mask;
+    }
+
+    static List<String> names(int n) {
+        List<String> names = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) names.add("p" + i);
+        return names;
+    }
+
+    private static boolean inTeam1(int mask, int idx) {
+        return idx >= 0 && idx < 31 && (mask & (1 << idx)) != 0;
+    }
+}
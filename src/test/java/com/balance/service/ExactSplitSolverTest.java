@@ -0,0 +1,115 @@
+package com.balance.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExactSplitSolverTest {
+
+    private static final int TOP_K = 5;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    @Test
+    void topKMatchesExhaustiveEnumeration() {
+        Random rnd = new Random(11);
+        int solved = 0;
+        for (int trial = 0; trial < 600; trial++) {
+            int n = 2 + rnd.nextInt(9);
+            int size1 = n / 2;
+            double[] scores = randomScores(rnd, n);
+            BruteForceSplits.Groups groups = BruteForceSplits.randomGroups(rnd, n);
+            List<Integer> masks = BruteForceSplits.validMasks(n, size1, groups);
+            if (masks.isEmpty()) continue;   // 모순인 입력은 TeamConstraintsTest 에서 본다
+
+            ExactSplitSolver solver = new ExactSplitSolver(scores,
+                TeamConstraints.of(BruteForceSplits.names(n), size1, groups.fixed(), groups.separate()),
+                TOP_K, NO_DEADLINE);
+            assertTrue(solver.solve(), "trial " + trial);
+            assertTrue(solver.optimal());
+
+            double[] expected = bestDiffs(n, size1, scores, masks);
+            assertEquals(expected.length, solver.splitCount(), "trial " + trial);
+            Set<Integer> seen = new HashSet<>();
+            for (int i = 0; i < solver.splitCount(); i++) {
+                int mask = BruteForceSplits.mask(solver.team1(i));
+                assertEquals(size1, solver.team1(i).size());
+                assertEquals(n - size1, solver.team2(i).size());
+                assertTrue(BruteForceSplits.valid(mask, groups), "trial " + trial + " split " + i);
+                assertTrue(seen.add(Math.min(mask, ~mask & ((1 << n) - 1))), "중복 분할");
+                assertEquals(expected[i], diff(scores, mask), 1e-6, "trial " + trial + " split " + i);
+            }
+            solved++;
+        }
+        assertTrue(solved > 300, "검증한 입력이 너무 적습니다: " + solved);
+    }
+
+    @Test
+    void parallelSearchReturnsSameSplitsAsSequential() {
+        Random rnd = new Random(14);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int trial = 0; trial < 60; trial++) {
+                int n = 11 + rnd.nextInt(8);
+                double[] scores = randomScores(rnd, n);
+                BruteForceSplits.Groups groups = BruteForceSplits.randomGroups(rnd, n);
+                TeamConstraints tc;
+                try {
+                    tc = TeamConstraints.of(BruteForceSplits.names(n), n / 2, groups.fixed(), groups.separate());
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+
+                ExactSplitSolver sequential = new ExactSplitSolver(scores, tc, TOP_K, NO_DEADLINE);
+                ExactSplitSolver parallel   = new ExactSplitSolver(scores, tc, TOP_K, NO_DEADLINE);
+                assertTrue(sequential.solve());
+                assertTrue(parallel.solve(pool));
+                assertTrue(parallel.optimal());
+                assertEquals(sequential.splitCount(), parallel.splitCount(), "trial " + trial);
+                for (int i = 0; i < sequential.splitCount(); i++) {
+                    assertEquals(sequential.team1(i), parallel.team1(i), "trial " + trial + " split " + i);
+                    assertEquals(sequential.team2(i), parallel.team2(i), "trial " + trial + " split " + i);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** 두 팀을 맞바꾼 분할은 하나로 보고, 점수 차가 작은 순서로 최대 TOP_K 개 */
+    private static double[] bestDiffs(int n, int size1, double[] scores, List<Integer> masks) {
+        Set<Integer> valid = new HashSet<>(masks);
+        int all = (1 << n) - 1;
+        List<Double> diffs = new ArrayList<>();
+        for (int mask : masks) {
+            int other = ~mask & all;
+            if (size1 * 2 == n && valid.contains(other) && other < mask) continue;
+            diffs.add(diff(scores, mask));
+        }
+        Collections.sort(diffs);
+        double[] out = new double[Math.min(TOP_K, diffs.size())];
+        for (int i = 0; i < out.length; i++) out[i] = diffs.get(i);
+        return out;
+    }
+
+    static double diff(double[] scores, int mask) {
+        double s1 = 0, s2 = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if ((mask & (1 << i)) != 0) s1 += scores[i];
+            else                        s2 += scores[i];
+        }
+        return Math.abs(s1 - s2);
+    }
+
+    /** 절반은 동점이 많은 정수 점수, 절반은 실수 점수 */
+    static double[] randomScores(Random rnd, int n) {
+        double[] scores = new double[n];
+        boolean coarse = rnd.nextBoolean();
+        for (int i = 0; i < n; i++) {
+            scores[i] = coarse ? 800 + 100 * rnd.nextInt(6) : 800 + rnd.nextDouble() * 1600;
+        }
+        return scores;
+    }
+}
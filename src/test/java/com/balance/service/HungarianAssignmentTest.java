@@ -0,0 +1,55 @@
+package com.balance.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HungarianAssignmentTest {
+
+    @Test
+    void findsMinimumCostPermutation() {
+        Random rnd = new Random(1515);
+        for (int trial = 0; trial < 500; trial++) {
+            int k = 1 + rnd.nextInt(7);
+            double[][] cost = new double[k][k];
+            for (double[] row : cost) {
+                for (int c = 0; c < k; c++) row[c] = rnd.nextBoolean() ? rnd.nextInt(5) : rnd.nextDouble() * 1000;
+            }
+            int[] out = new int[k];
+            new HungarianAssignment(k).solve(cost, out);
+
+            boolean[] usedRow = new boolean[k];
+            double total = 0;
+            for (int col = 0; col < k; col++) {
+                assertFalse(usedRow[out[col]], "같은 행이 두 번 배정됨");
+                usedRow[out[col]] = true;
+                total += cost[out[col]][col];
+            }
+            assertEquals(bruteMinimum(cost, new boolean[k], 0), total, 1e-6, "trial " + trial);
+        }
+    }
+
+    @Test
+    void instanceCanBeReused() {
+        HungarianAssignment h = new HungarianAssignment(3);
+        int[] out = new int[3];
+        h.solve(new double[][] { { 0, 9, 9 }, { 9, 0, 9 }, { 9, 9, 0 } }, out);
+        assertArrayEquals(new int[] { 0, 1, 2 }, out);
+        h.solve(new double[][] { { 9, 9, 0 }, { 0, 9, 9 }, { 9, 0, 9 } }, out);
+        assertArrayEquals(new int[] { 1, 2, 0 }, out);
+    }
+
+    private static double bruteMinimum(double[][] cost, boolean[] usedRow, int col) {
+        if (col == cost.length) return 0;
+        double best = Double.POSITIVE_INFINITY;
+        for (int row = 0; row < cost.length; row++) {
+            if (usedRow[row]) continue;
+            usedRow[row] = true;
+            best = Math.min(best, cost[row][col] + bruteMinimum(cost, usedRow, col + 1));
+            usedRow[row] = false;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,147 @@
+package com.balance.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaneAssignmentEngineTest {
+
+    private static final int TOP_K = 5;
+
+    /** 팀 하나의 최적 배정 (조건: 라인 고정 → 최근 라인 중복 최소 → 주 라인 일치 최대 → 가중 점수 최대) */
+    private record TeamBest(int matches, double score) {}
+
+    private record Lobby(int k, double[] score, int[] primary, int[] secondary, int[] history, int[] lock) {
+        double value(int p, int lane) {
+            if (lane == primary[p])   return score[p];
+            if (lane == secondary[p]) return score[p] * LaneAssignmentEngine.SECONDARY_FACTOR;
+            return score[p] * LaneAssignmentEngine.OFF_LANE_FACTOR;
+        }
+    }
+
+    @Test
+    void topKMatchesPermutationSearch() {
+        Random rnd = new Random(15);
+        int checked = 0;
+        for (int trial = 0; trial < 300; trial++) {
+            Lobby lobby = randomLobby(rnd, 2 + rnd.nextInt(3));
+            int n = 2 * lobby.k();
+            BruteForceSplits.Groups groups = BruteForceSplits.randomGroups(rnd, n);
+            List<Integer> masks = BruteForceSplits.validMasks(n, lobby.k(), groups);
+            if (masks.isEmpty()) continue;
+
+            LaneAssignmentEngine engine = new LaneAssignmentEngine(lobby.k(), lobby.score(), lobby.primary(),
+                lobby.secondary(), lobby.history(), lobby.lock(),
+                TeamConstraints.of(BruteForceSplits.names(n), lobby.k(), groups.fixed(), groups.separate()));
+            boolean found = engine.solve(TOP_K);
+
+            List<double[]> expected = expectedRanking(lobby, masks);
+            assertEquals(!expected.isEmpty(), found, "trial " + trial);
+            assertEquals(expected.size(), engine.splitCount(), "trial " + trial);
+            for (int i = 0; i < engine.splitCount(); i++) {
+                int[] t1 = engine.team1ByLane(i), t2 = engine.team2ByLane(i);
+                int mask = 0;
+                for (int p : t1) mask |= 1 << p;
+                assertTrue(BruteForceSplits.valid(mask, groups), "trial " + trial + " split " + i);
+
+                int matches = 0;
+                double s1 = 0, s2 = 0;
+                for (int lane = 0; lane < lobby.k(); lane++) {
+                    for (int p : new int[] { t1[lane], t2[lane] }) {
+                        assertTrue(lobby.lock()[p] < 0 || lobby.lock()[p] == lane, "라인 고정 위반");
+                        if (lobby.primary()[p] == lane) matches++;
+                    }
+                    s1 += lobby.value(t1[lane], lane);
+                    s2 += lobby.value(t2[lane], lane);
+                }
+                assertEquals(s1, engine.team1Score(i), 1e-6);
+                assertEquals(s2, engine.team2Score(i), 1e-6);
+                assertEquals((int) expected.get(i)[0], matches, "trial " + trial + " split " + i);
+                assertEquals(expected.get(i)[1], Math.abs(s1 - s2), 1e-6, "trial " + trial + " split " + i);
+            }
+            checked++;
+        }
+        assertTrue(checked > 150, "검증한 입력이 너무 적습니다: " + checked);
+    }
+
+    /** 분할별 { 주 라인 일치 수 합, 점수 차 } 를 엔진과 같은 우선순위로 정렬한 상위 TOP_K 개 */
+    private static List<double[]> expectedRanking(Lobby lobby, List<Integer> masks) {
+        int all = (1 << (2 * lobby.k())) - 1;
+        Set<Integer> valid = new HashSet<>(masks);
+        List<double[]> ranking = new ArrayList<>();
+        for (int mask : masks) {
+            int other = ~mask & all;
+            if ((mask & 1) == 0 && valid.contains(other)) continue;
+            TeamBest a = bestAssignment(lobby, mask), b = bestAssignment(lobby, other);
+            if (a == null || b == null) continue;
+            ranking.add(new double[] { a.matches() + b.matches(), Math.abs(a.score() - b.score()) });
+        }
+        ranking.sort((x, y) -> x[0] != y[0] ? Double.compare(y[0], x[0]) : Double.compare(x[1], y[1]));
+        return ranking.subList(0, Math.min(TOP_K, ranking.size()));
+    }
+
+    /** k! 순열을 모두 본다. 라인 고정을 지키는 배정이 없으면 null */
+    private static TeamBest bestAssignment(Lobby lobby, int mask) {
+        int[] team = new int[lobby.k()];
+        int t = 0;
+        for (int p = 0; p < 2 * lobby.k(); p++) if ((mask & (1 << p)) != 0) team[t++] = p;
+
+        TeamBest best = null;
+        int bestConflicts = Integer.MAX_VALUE;
+        for (int[] perm : permutations(lobby.k())) {   // perm[lane] = 팀 로컬 인덱스
+            int conflicts = 0, matches = 0;
+            double score = 0;
+            boolean locked = true;
+            for (int lane = 0; lane < lobby.k(); lane++) {
+                int p = team[perm[lane]];
+                if (lobby.lock()[p] >= 0 && lobby.lock()[p] != lane) { locked = false; break; }
+                if ((lobby.history()[p] & (1 << lane)) != 0) conflicts++;
+                if (lobby.primary()[p] == lane) matches++;
+                score += lobby.value(p, lane);
+            }
+            if (!locked) continue;
+            boolean better = best == null
+                || conflicts < bestConflicts
+                || (conflicts == bestConflicts && (matches > best.matches()
+                    || (matches == best.matches() && score > best.score() + 1e-9)));
+            if (better) {
+                best = new TeamBest(matches, score);
+                bestConflicts = conflicts;
+            }
+        }
+        return best;
+    }
+
+    private static List<int[]> permutations(int k) {
+        List<int[]> out = new ArrayList<>();
+        permute(new int[k], new boolean[k], 0, out);
+        return out;
+    }
+
+    private static void permute(int[] perm, boolean[] used, int at, List<int[]> out) {
+        if (at == perm.length) { out.add(perm.clone()); return; }
+        for (int i = 0; i < perm.length; i++) {
+            if (used[i]) continue;
+            used[i] = true;
+            perm[at] = i;
+            permute(perm, used, at + 1, out);
+            used[i] = false;
+        }
+    }
+
+    private static Lobby randomLobby(Random rnd, int k) {
+        int n = 2 * k;
+        double[] score = new double[n];
+        int[] primary = new int[n], secondary = new int[n], history = new int[n], lock = new int[n];
+        for (int p = 0; p < n; p++) {
+            score[p]     = 800 + 100 * rnd.nextInt(8);
+            primary[p]   = rnd.nextInt(k + 1) - 1;
+            secondary[p] = rnd.nextInt(k + 1) - 1;
+            history[p]   = rnd.nextInt(1 << k) & rnd.nextInt(1 << k);
+            lock[p]      = rnd.nextInt(6) == 0 ? rnd.nextInt(k) : -1;
+        }
+        return new Lobby(k, score, primary, secondary, history, lock);
+    }
+}
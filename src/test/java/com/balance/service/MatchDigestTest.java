@@ -0,0 +1,143 @@
+package com.balance.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchDigestTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final String[] FIELDS = {
+        "puuid", "participantId", "championName", "teamPosition", "teamId", "win", "kills", "deaths", "assists",
+        "riotIdGameName", "riotIdTagline", "item0", "item3", "item6" };
+
+    @Test
+    void fixtureMatchesTreeRead() throws IOException {
+        byte[] json = fixture("match-small.json");
+        MatchDigest digest = MatchDigest.read(json);
+        assertEquals(describe(treeDigest(MAPPER.readTree(json))), describe(digest));
+
+        // 고정값 몇 개는 직접 확인 (문자열 숫자, 실수, 빠진 필드, 배열, 객체)
+        MatchDigest.Participant p0 = digest.participants().get(0), p1 = digest.participants().get(1);
+        MatchDigest.Participant p2 = digest.participants().get(2), p3 = digest.participants().get(3);
+        assertEquals(7, p0.kills());
+        assertEquals(3047, p0.items()[2]);
+        assertNull(p1.championName());
+        assertEquals(4, p1.deaths());
+        assertEquals("", p2.teamPosition());
+        assertTrue(p2.win());
+        assertEquals(0, p2.assists());
+        assertEquals(1, p3.teamId());
+        assertEquals(0, p3.items()[6]);
+        assertEquals("12", p3.riotIdTagline());
+    }
+
+    @Test
+    void mutatedDocumentsMatchTreeRead() throws IOException {
+        ObjectNode base = (ObjectNode) MAPPER.readTree(fixture("match-small.json"));
+        Random rnd = new Random(21);
+        for (int trial = 0; trial < 1500; trial++) {
+            ObjectNode doc = base.deepCopy();
+            ObjectNode info = (ObjectNode) doc.get("info");
+            int edits = 1 + rnd.nextInt(6);
+            for (int e = 0; e < edits; e++) {
+                switch (rnd.nextInt(12)) {
+                    case 0  -> put(info, "queueId", randomValue(rnd));
+                    case 1  -> put(info, "gameType", randomValue(rnd));
+                    case 2  -> put(info, "gameDuration", randomValue(rnd));
+                    case 3  -> { if (rnd.nextInt(10) == 0) put(doc, "info", randomValue(rnd)); }
+                    default -> {
+                        ArrayNode parts = (ArrayNode) info.get("participants");
+                        ObjectNode p = (ObjectNode) parts.get(rnd.nextInt(parts.size()));
+                        put(p, FIELDS[rnd.nextInt(FIELDS.length)], randomValue(rnd));
+                    }
+                }
+            }
+            byte[] json = MAPPER.writeValueAsBytes(doc);
+            assertEquals(describe(treeDigest(MAPPER.readTree(json))), describe(MatchDigest.read(json)),
+                "trial " + trial);
+        }
+    }
+
+    @Test
+    void documentWithoutInfoIsEmpty() throws IOException {
+        MatchDigest digest = MatchDigest.read("{\"metadata\":{\"matchId\":\"KR_1\"}}");
+        assertEquals(-1, digest.queueId());
+        assertEquals("", digest.gameType());
+        assertTrue(digest.participants().isEmpty());
+        assertThrows(IOException.class, () -> MatchDigest.read("[1,2]"));
+    }
+
+    /** 스트리밍 파서로 바꾸기 전 rankedSummary / customSummary 가 JsonNode 에서 읽던 방식 그대로 */
+    private static MatchDigest treeDigest(JsonNode doc) {
+        JsonNode info = doc.get("info");
+        if (info == null || !info.isObject()) return new MatchDigest(-1, "", 0, List.of());
+        List<MatchDigest.Participant> parts = new ArrayList<>();
+        for (JsonNode p : info.path("participants")) {
+            int[] items = new int[7];
+            for (int i = 0; i < 7; i++) items[i] = p.path("item" + i).asInt(0);
+            parts.add(new MatchDigest.Participant(p.path("puuid").asText(""), p.path("participantId").asInt(0),
+                p.path("championName").asText(null), p.path("teamPosition").asText(""), p.path("teamId").asInt(0),
+                p.path("win").asBoolean(false), p.path("kills").asInt(0), p.path("deaths").asInt(0),
+                p.path("assists").asInt(0), items, p.path("riotIdGameName").asText(""),
+                p.path("riotIdTagline").asText("")));
+        }
+        return new MatchDigest(info.path("queueId").asInt(-1), info.path("gameType").asText(""),
+            info.path("gameDuration").asInt(0), parts);
+    }
+
+    private static String describe(MatchDigest d) {
+        StringBuilder sb = new StringBuilder()
+            .append(d.queueId()).append('|').append(d.gameType()).append('|').append(d.gameDuration()).append('\n');
+        for (MatchDigest.Participant p : d.participants()) {
+            sb.append(p.puuid()).append('|').append(p.participantId()).append('|').append(p.championName())
+              .append('|').append(p.teamPosition()).append('|').append(p.teamId()).append('|').append(p.win())
+              .append('|').append(p.kills()).append('/').append(p.deaths()).append('/').append(p.assists())
+              .append('|').append(Arrays.toString(p.items())).append('|').append(p.riotIdGameName())
+              .append('#').append(p.riotIdTagline()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** value 가 null 이면 필드를 뺀다 */
+    static void put(ObjectNode node, String field, JsonNode value) {
+        if (value == null) node.remove(field);
+        else               node.set(field, value);
+    }
+
+    /** 빠진 값(Java null), JSON null, 문자열 숫자, 실수, 불리언, 배열, 객체, int 범위를 넘는 수 */
+    private static JsonNode randomValue(Random rnd) {
+        return switch (rnd.nextInt(14)) {
+            case 0  -> null;
+            case 1  -> NODES.nullNode();
+            case 2  -> NODES.textNode(Integer.toString(rnd.nextInt(5000) - 100));
+            case 3  -> NODES.textNode(" " + rnd.nextInt(50) + " ");
+            case 4  -> NODES.textNode(rnd.nextBoolean() ? "true" : "false");
+            case 5  -> NODES.textNode(rnd.nextBoolean() ? "abc" : "");
+            case 6  -> NODES.textNode((rnd.nextInt(200) - 50) + ".75");
+            case 7  -> NODES.numberNode(rnd.nextDouble() * 4000 - 100);
+            case 8  -> NODES.booleanNode(rnd.nextBoolean());
+            case 9  -> NODES.arrayNode().add(1).add("x");
+            case 10 -> NODES.objectNode().put("a", 1);
+            case 11 -> NODES.numberNode(5_000_000_000L + rnd.nextInt(1000));
+            default -> NODES.numberNode(rnd.nextInt(4000));
+        };
+    }
+
+    static byte[] fixture(String name) throws IOException {
+        try (InputStream in = MatchDigestTest.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IOException("fixture 없음: " + name);
+            return in.readAllBytes();
+        }
+    }
+}
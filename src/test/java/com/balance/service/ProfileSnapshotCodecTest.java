@@ -0,0 +1,106 @@
+package com.balance.service;
+
+import com.balance.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileSnapshotCodecTest {
+
+    @Test
+    void roundTripsRawAndCompressed() throws IOException {
+        PlayerProfile p = profile("puuid-1", new RankEntry("GOLD", "II", 45, 30, 28, 51.7, 1450, "RANKED_SOLO_5x5"));
+        for (boolean compress : new boolean[] { false, true }) {
+            byte[] data = ProfileSnapshotCodec.encode(p, compress);
+            assertEquals(compress, ProfileSnapshotCodec.isCompressed(data));
+            assertEquals(p, ProfileSnapshotCodec.decode(data));
+        }
+        byte[] raw = ProfileSnapshotCodec.encode(p, false), packed = ProfileSnapshotCodec.encode(p, true);
+        assertEquals(ProfileSnapshotCodec.bodySize(raw), ProfileSnapshotCodec.bodySize(packed));
+        assertTrue(packed.length < raw.length);
+    }
+
+    @Test
+    void keepsNullRanksAndNullVersusEmptyParticipants() throws IOException {
+        PlayerProfile p = profile(null, null);
+        PlayerProfile decoded = ProfileSnapshotCodec.decode(ProfileSnapshotCodec.encode(p, true));
+        assertEquals(p, decoded);
+        assertNull(decoded.puuid());
+        assertNull(decoded.highestRank());
+        assertNull(decoded.solo());
+        assertNull(decoded.recentMatches().get(0).participants());
+        assertEquals(List.of(), decoded.customMatches().get(0).participants());
+        assertEquals(2, decoded.customMatches().get(1).participants().size());
+    }
+
+    @Test
+    void keepsNegativeAndExtremeInts() throws IOException {
+        PlayerProfile p = profile("x", new RankEntry("IRON", "IV", -5, 0, Integer.MAX_VALUE, -0.0, Integer.MIN_VALUE, null));
+        assertEquals(p, ProfileSnapshotCodec.decode(ProfileSnapshotCodec.encode(p, false)));
+    }
+
+    @Test
+    void readsVersionOneWithoutPuuid() throws IOException {
+        PlayerProfile p = profile(null, null);
+        byte[] v2 = ProfileSnapshotCodec.encode(p, false);
+        // 헤더 3바이트 + displayName/gameName/tagLine (짧은 문자열: 태그 1바이트 + UTF-8 본문) 다음이 puuid(null = 0)
+        int at = 3;
+        for (String s : new String[] { p.displayName(), p.gameName(), p.tagLine() }) {
+            at += 1 + s.getBytes(StandardCharsets.UTF_8).length;
+        }
+        assertEquals(0, v2[at]);
+        byte[] v1 = new byte[v2.length - 1];
+        System.arraycopy(v2, 0, v1, 0, at);
+        System.arraycopy(v2, at + 1, v1, at, v2.length - at - 1);
+        v1[1] = 1;
+        assertEquals(p, ProfileSnapshotCodec.decode(v1));
+    }
+
+    @Test
+    void rejectsForeignAndTruncatedData() {
+        byte[] data = ProfileSnapshotCodec.encode(profile("p", null), true);
+        byte[] raw  = ProfileSnapshotCodec.encode(profile("p", null), false);
+        assertThrows(IOException.class, () -> ProfileSnapshotCodec.decode(new byte[] { '{', '"', 'a' }));
+        assertThrows(IOException.class, () -> ProfileSnapshotCodec.decode(Arrays.copyOf(raw, raw.length - 4)));
+        assertThrows(IOException.class, () -> ProfileSnapshotCodec.decode(Arrays.copyOf(data, data.length / 2)));
+        byte[] future = data.clone();
+        future[1] = 99;
+        assertThrows(IOException.class, () -> ProfileSnapshotCodec.decode(future));
+    }
+
+    @Test
+    void rejectsRawSizeBeyondDeflateRatio() {
+        // 헤더 + varint 원본 길이 (Integer.MAX_VALUE) + 짧은 본문: 2GB 배열을 잡지 말고 IOException
+        byte[] data = { 'P', 2, 1, (byte) 0xfe, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f, 0x78, 0x01, 0x03, 0x00 };
+        assertThrows(IOException.class, () -> ProfileSnapshotCodec.decode(data));
+    }
+
+    private static PlayerProfile profile(String puuid, RankEntry solo) {
+        Map<String, LaneStat> laneStats = new LinkedHashMap<>();
+        laneStats.put("MIDDLE", new LaneStat(12, 8, 20));
+        laneStats.put("TOP", new LaneStat(0, 3, 3));
+        Map<String, Integer> laneCounts = new LinkedHashMap<>();
+        laneCounts.put("MIDDLE", 20);
+        laneCounts.put("TOP", 3);
+        String ahriImg = "https://ddragon.leagueoflegends.com/cdn/14.1.1/img/champion/Ahri.png";
+        List<MatchSummary> recent = List.of(
+            new MatchSummary("KR_1", 3, "아리", true, 10, 2, 7, 8.5, "MIDDLE", "31:05", 1865,
+                List.of(3089, 0, -1), null),
+            new MatchSummary("KR_2", 8, "아리", false, 0, 9, 1, 0.11, "MIDDLE", "18:40", 1120, List.of(), null));
+        List<MatchSummary> customs = List.of(
+            new MatchSummary("KR_3", 1, "가렌", false, 1, 1, 1, 2.0, "TOP", "25:00", 1500, List.of(), List.of()),
+            new MatchSummary("KR_4", 2, "아리", true, 5, 0, 5, 10.0, "MIDDLE", "20:00", 1200, List.of(1001),
+                List.of(new MatchParticipant("하나", "KR1", "아리", 100, 5, 0, 5, true),
+                        new MatchParticipant("둘", "KR1", "가렌", 200, 0, 5, 0, false))));
+        return new PlayerProfile("하나#KR1", "하나", "KR1", puuid, 312, "https://example/icon/1.png",
+            solo, solo, null, "MIDDLE", "TOP", "미드", 60, laneStats, laneCounts, 1480,
+            List.of(new MasteryChamp("아리", ahriImg, 7, 254_000)),
+            List.of(new ChampStat("아리", 2, 50, 1.93, ahriImg)),
+            recent, 2, customs, List.of(new ChampStat("아리", 1, 100, 10.0, ahriImg)),
+            1, 1, 2, -35, null, null, null);
+    }
+}
@@ -0,0 +1,103 @@
+package com.balance.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionSchedulerTest {
+
+    private static final List<String> LANES = List.of("TOP", "JUNGLE", "MIDDLE", "BOTTOM", "UTILITY");
+
+    @Test
+    void lockedLanesHoldInEveryRound() {
+        Random rnd = new Random(16);
+        for (int trial = 0; trial < 20; trial++) {
+            int n = 10, k = 5, rounds = 6;
+            double[] score = new double[n];
+            int[] primary = new int[n], secondary = new int[n], lock = new int[n];
+            Arrays.fill(lock, -1);
+            for (int p = 0; p < n; p++) {
+                score[p]     = 800 + 100 * rnd.nextInt(10);
+                primary[p]   = rnd.nextInt(k);
+                secondary[p] = rnd.nextInt(k);
+            }
+            // 같은 라인 두 명 + 다른 라인 한 명
+            lock[0] = 2;
+            lock[1] = 2;
+            lock[2] = (3 + rnd.nextInt(k - 1)) % k;
+            // BalanceService 가 같은 라인 고정을 분리 조건으로 넘기는 것과 같게
+            BruteForceSplits.Groups groups = new BruteForceSplits.Groups(List.of(List.of(3, 4)),
+                List.of(List.of(5, 6), List.of(0, 1)));
+            TeamConstraints tc = TeamConstraints.of(BruteForceSplits.names(n), k, groups.fixed(), groups.separate());
+
+            SessionScheduler scheduler = new SessionScheduler(score, primary, secondary, k,
+                new int[n][k], new int[n][n], lock, tc, rounds);
+            scheduler.solve(new Random(trial), 20000, Long.MAX_VALUE);
+
+            assertEquals(0, scheduler.lockViolations(), "trial " + trial);
+            for (int r = 0; r < rounds; r++) {
+                int mask = 0;
+                for (int p : scheduler.team1(r)) mask |= 1 << p;
+                assertTrue(BruteForceSplits.valid(mask, groups), "trial " + trial + " round " + r);
+                for (int p = 0; p < n; p++) {
+                    if (lock[p] >= 0) assertEquals(lock[p], scheduler.laneOf(r, p), "trial " + trial + " round " + r);
+                }
+                // 같은 라인에 고정된 두 사람은 서로 다른 팀이어야 한다
+                assertNotEquals((mask & 1) != 0, (mask & 2) != 0);
+            }
+        }
+    }
+
+    @Test
+    void scheduleRejectsLocksItCannotHonour() {
+        BalanceService service = new BalanceService();
+        List<Map<String, Object>> ten = players(10), six = players(6);
+
+        assertThrows(IllegalArgumentException.class, () -> schedule(service, six, Map.of(0, "TOP")),
+            "라인 배정이 없는 로비");
+        assertThrows(IllegalArgumentException.class, () -> schedule(service, ten, Map.of(0, "SUPPORT")),
+            "알 수 없는 라인");
+        assertThrows(IllegalArgumentException.class, () -> schedule(service, ten, Map.of(12, "TOP")),
+            "로비 밖 인덱스");
+        assertThrows(IllegalArgumentException.class, () -> schedule(service, ten,
+            Map.of(0, "TOP", 1, "TOP", 2, "TOP")), "한 라인에 세 명");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scheduleAppliesLocksToEveryRound() {
+        Map<String, Object> result = schedule(new BalanceService(), players(10), Map.of(0, "MIDDLE", 7, "UTILITY"));
+        List<Map<String, Object>> plan = (List<Map<String, Object>>) result.get("rounds");
+        assertEquals(3, plan.size());
+        for (Map<String, Object> round : plan) {
+            Map<String, String> laneOf = new HashMap<>();
+            for (String team : List.of("team1", "team2")) {
+                for (Map<String, Object> p : (List<Map<String, Object>>) round.get(team)) {
+                    laneOf.put((String) p.get("displayName"), (String) p.get("assignedLane"));
+                }
+            }
+            assertEquals("MIDDLE", laneOf.get("p0"));
+            assertEquals("UTILITY", laneOf.get("p7"));
+        }
+    }
+
+    private static Map<String, Object> schedule(BalanceService service, List<Map<String, Object>> players,
+                                                Map<Integer, String> locks) {
+        return service.schedule(players, 3, List.of(), List.of(), locks, Map.of(), Map.of(), LANES, 7L);
+    }
+
+    private static List<Map<String, Object>> players(int n) {
+        List<Map<String, Object>> players = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("displayName",   "p" + i);
+            p.put("score",         1000 + 50 * i);
+            p.put("primaryLane",   LANES.get(i % LANES.size()));
+            p.put("secondaryLane", LANES.get((i + 1) % LANES.size()));
+            players.add(p);
+        }
+        return players;
+    }
+}
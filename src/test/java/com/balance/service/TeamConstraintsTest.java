@@ -0,0 +1,85 @@
+package com.balance.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TeamConstraintsTest {
+
+    @Test
+    void splitsMatchExhaustiveEnumeration() {
+        Random rnd = new Random(12);
+        int contradictory = 0;
+        for (int trial = 0; trial < 800; trial++) {
+            int n = 2 + rnd.nextInt(9);
+            int size1 = n / 2;
+            BruteForceSplits.Groups groups = BruteForceSplits.randomGroups(rnd, n);
+            List<Integer> expected = BruteForceSplits.validMasks(n, size1, groups);
+
+            if (expected.isEmpty()) {
+                // 조건을 만족하는 분할이 없으면 생성 시 거절해야 한다
+                assertThrows(IllegalArgumentException.class, () -> TeamConstraints.of(
+                    BruteForceSplits.names(n), size1, groups.fixed(), groups.separate()), "trial " + trial);
+                contradictory++;
+                continue;
+            }
+            TeamConstraints tc = TeamConstraints.of(BruteForceSplits.names(n), size1, groups.fixed(), groups.separate());
+            List<Integer> actual = new ArrayList<>();
+            tc.forEachSplit(actual::add);
+            Collections.sort(actual);
+            assertEquals(expected, actual, "trial " + trial + " " + groups);
+        }
+        assertTrue(contradictory > 20, "모순인 입력이 너무 적습니다: " + contradictory);
+    }
+
+    @Test
+    void sampleDrawsOnlyValidSplitsAndReachesAllOfThem() {
+        Random rnd = new Random(1212);
+        BruteForceSplits.Groups groups = new BruteForceSplits.Groups(
+            List.of(List.of(0, 1)), List.of(List.of(2, 3)));
+        int n = 8;
+        TeamConstraints tc = TeamConstraints.of(BruteForceSplits.names(n), n / 2, groups.fixed(), groups.separate());
+
+        Set<Integer> drawn = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            List<Integer> order = tc.sample(rnd);
+            assertEquals(n, new HashSet<>(order).size());
+            int mask = BruteForceSplits.mask(order.subList(0, n / 2));
+            assertTrue(BruteForceSplits.valid(mask, groups));
+            drawn.add(mask);
+        }
+        assertEquals(new HashSet<>(BruteForceSplits.validMasks(n, n / 2, groups)), drawn);
+    }
+
+    @Test
+    void fixedAndSeparatedTogetherIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TeamConstraints.of(
+            BruteForceSplits.names(4), 2, List.of(List.of(0, 1)), List.of(List.of(1, 0))));
+    }
+
+    @Test
+    void oddSeparationCycleIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TeamConstraints.of(
+            BruteForceSplits.names(6), 3, List.of(), List.of(List.of(0, 1), List.of(1, 2), List.of(2, 0))));
+    }
+
+    @Test
+    void fixedGroupLargerThanEitherTeamIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TeamConstraints.of(
+            BruteForceSplits.names(4), 2, List.of(List.of(0, 1, 2)), List.of()));
+    }
+
+    @Test
+    void outsideIndexCountsAsNotTeam1() {
+        // 로비 밖 인덱스(9)와 분리된 0 은 항상 팀1, 묶인 1 은 항상 팀2
+        TeamConstraints tc = TeamConstraints.of(BruteForceSplits.names(4), 2,
+            List.of(List.of(1, 9)), List.of(List.of(0, 9)));
+        assertFalse(tc.symmetric());
+        tc.forEachSplit(mask -> {
+            assertTrue((mask & 1) != 0);
+            assertTrue((mask & 2) == 0);
+        });
+    }
+}
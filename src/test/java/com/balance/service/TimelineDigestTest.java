@@ -0,0 +1,202 @@
+package com.balance.service;
+
+import com.balance.service.TimelineDigest.Event;
+import com.balance.service.TimelineDigest.Kind;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimelineDigestTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final String[] TYPES = {
+        "ITEM_PURCHASED", "ITEM_UNDO", "CHAMPION_KILL", "ELITE_MONSTER_KILL", "ITEM_SOLD", "WARD_PLACED" };
+    private static final String[] ID_FIELDS = { "participantId", "itemId", "beforeActionItemId", "killerId", "victimId" };
+
+    @Test
+    void fixtureEventsPerParticipant() throws IOException {
+        TimelineDigest digest = TimelineDigest.read(MatchDigestTest.fixture("timeline-small.json"));
+
+        // 참가자 1: 구매 두 개, 2분 포션 두 개 중 되돌린 하나 빠짐, 1분 데스, 2분 용, 문자열 killerId 킬, 전령, 3분 어시
+        assertEquals(List.of(
+            new Event(Kind.ITEM, 0, 1055, null),
+            new Event(Kind.ITEM, 0, 2003, null),
+            new Event(Kind.DEATH, 1, 0, null),
+            new Event(Kind.ITEM, 1, 2003, null),
+            new Event(Kind.OBJECTIVE, 2, 0, "FIRE_DRAGON"),
+            new Event(Kind.OBJECTIVE, 2, 0, "RIFTHERALD"),
+            new Event(Kind.KILL, 2, 0, null),
+            new Event(Kind.ASSIST, 3, 0, null)), digest.forParticipant(1));
+
+        // 참가자 2: 되돌린 1056 은 빠지고 1054 만, 1분 어시, 순서가 어긋난 1분 데스는 1분 마지막 뒤로
+        assertEquals(List.of(
+            new Event(Kind.ITEM, 0, 1054, null),
+            new Event(Kind.ASSIST, 1, 0, null),
+            new Event(Kind.DEATH, 1, 0, null),
+            new Event(Kind.OBJECTIVE, 2, 0, "FIRE_DRAGON"),
+            new Event(Kind.OBJECTIVE, 2, 0, "RIFTHERALD"),
+            new Event(Kind.ASSIST, 2, 0, null),
+            new Event(Kind.KILL, 3, 0, null)), digest.forParticipant(2));
+
+        assertEquals(reference(MAPPER.readTree(MatchDigestTest.fixture("timeline-small.json")), 3),
+            digest.forParticipant(3));
+    }
+
+    @Test
+    void mutatedTimelinesMatchTreeRead() throws IOException {
+        ObjectNode base = (ObjectNode) MAPPER.readTree(MatchDigestTest.fixture("timeline-small.json"));
+        Random rnd = new Random(22);
+        for (int trial = 0; trial < 1500; trial++) {
+            ObjectNode doc = base.deepCopy();
+            ArrayNode frames = (ArrayNode) doc.path("info").path("frames");
+            int edits = 1 + rnd.nextInt(8);
+            for (int e = 0; e < edits; e++) {
+                ArrayNode events = (ArrayNode) frames.get(rnd.nextInt(frames.size())).get("events");
+                int at = rnd.nextInt(events.size() + 1);
+                switch (rnd.nextInt(4)) {
+                    case 0 -> events.insert(at, randomEvent(rnd));
+                    case 1 -> { if (at < events.size()) events.remove(at); }
+                    default -> {
+                        if (at == events.size() || !events.get(at).isObject()) break;
+                        ObjectNode ev = (ObjectNode) events.get(at);
+                        mutate(ev, rnd);
+                        if (rnd.nextBoolean()) events.set(at, reversed(ev));
+                    }
+                }
+            }
+            byte[] json = MAPPER.writeValueAsBytes(doc);
+            TimelineDigest digest = TimelineDigest.read(json);
+            JsonNode tree = MAPPER.readTree(json);
+            for (int pid = 0; pid <= 11; pid++) {
+                assertEquals(reference(tree, pid), digest.forParticipant(pid), "trial " + trial + " pid " + pid);
+            }
+        }
+    }
+
+    @Test
+    void documentWithoutFramesHasNoEvents() throws IOException {
+        assertEquals(List.of(), TimelineDigest.read("{\"info\":{\"frames\":{}}}".getBytes()).forParticipant(1));
+        assertEquals(List.of(), TimelineDigest.read("{\"metadata\":{}}".getBytes()).forParticipant(1));
+        assertThrows(IOException.class, () -> TimelineDigest.read("[]".getBytes()));
+    }
+
+    /**
+     * 트리로 읽은 참가자 한 명의 이벤트. 문서 순서대로 모으고 ITEM_UNDO 는 그때까지 나온 같은 아이템의 마지막 구매를 지운 뒤,
+     * 분 기준으로 안정 정렬한다 (TimelineDigest 클래스 설명의 규칙).
+     */
+    private static List<Event> reference(JsonNode doc, int pid) {
+        List<Event> events = new ArrayList<>();
+        for (JsonNode frame : doc.path("info").path("frames")) {
+            for (JsonNode ev : frame.path("events")) {
+                if (!ev.isObject()) continue;
+                int minute = ev.path("timestamp").asInt(0) / 60000;
+                switch (ev.path("type").asText("")) {
+                    case "ITEM_PURCHASED" -> {
+                        if (ev.path("participantId").asInt(0) == pid) {
+                            events.add(new Event(Kind.ITEM, minute, ev.path("itemId").asInt(0), null));
+                        }
+                    }
+                    case "ITEM_UNDO" -> {
+                        if (ev.path("participantId").asInt(0) != pid) break;
+                        int item = ev.path("beforeActionItemId").asInt(0);
+                        for (int i = events.size() - 1; i >= 0; i--) {
+                            if (events.get(i).kind() == Kind.ITEM && events.get(i).itemId() == item) {
+                                events.remove(i);
+                                break;
+                            }
+                        }
+                    }
+                    case "CHAMPION_KILL" -> {
+                        if (ev.path("killerId").asInt(0) == pid) {
+                            events.add(new Event(Kind.KILL, minute, 0, null));
+                        } else if (ev.path("victimId").asInt(0) == pid) {
+                            events.add(new Event(Kind.DEATH, minute, 0, null));
+                        } else if (ev.path("assistingParticipantIds").isArray()) {
+                            for (JsonNode aid : ev.path("assistingParticipantIds")) {
+                                if (aid.asInt(0) == pid) {
+                                    events.add(new Event(Kind.ASSIST, minute, 0, null));
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                    case "ELITE_MONSTER_KILL" -> {
+                        String sub = ev.path("monsterSubType").asText("");
+                        if (sub.isEmpty()) sub = ev.path("monsterType").asText("");
+                        events.add(new Event(Kind.OBJECTIVE, minute, 0, sub));
+                    }
+                    default -> {}
+                }
+            }
+        }
+        events.sort(Comparator.comparingInt(Event::minute));
+        return events;
+    }
+
+    private static ObjectNode randomEvent(Random rnd) {
+        ObjectNode ev = NODES.objectNode();
+        ev.put("timestamp", rnd.nextInt(240_000));
+        ev.put("type", TYPES[rnd.nextInt(TYPES.length)]);
+        ev.put("participantId", rnd.nextInt(5));
+        ev.put(rnd.nextBoolean() ? "itemId" : "beforeActionItemId", rnd.nextBoolean() ? 2003 : 1055);
+        ev.put("killerId", rnd.nextInt(5));
+        ev.put("victimId", rnd.nextInt(5));
+        ev.set("assistingParticipantIds", NODES.arrayNode().add(rnd.nextInt(5)).add(rnd.nextInt(5)));
+        if (rnd.nextBoolean()) ev.put("monsterType", "DRAGON");
+        if (rnd.nextBoolean()) ev.put("monsterSubType", rnd.nextBoolean() ? "AIR_DRAGON" : "");
+        return ev;
+    }
+
+    private static void mutate(ObjectNode ev, Random rnd) {
+        switch (rnd.nextInt(5)) {
+            case 0 -> MatchDigestTest.put(ev, "type", rnd.nextInt(8) == 0 ? NODES.nullNode()
+                : NODES.textNode(TYPES[rnd.nextInt(TYPES.length)]));
+            case 1 -> MatchDigestTest.put(ev, "timestamp", number(rnd, 240_000));
+            case 2 -> MatchDigestTest.put(ev, ID_FIELDS[rnd.nextInt(ID_FIELDS.length)], number(rnd, 5));
+            case 3 -> MatchDigestTest.put(ev, rnd.nextBoolean() ? "monsterType" : "monsterSubType",
+                switch (rnd.nextInt(4)) {
+                    case 0  -> null;
+                    case 1  -> NODES.nullNode();
+                    case 2  -> NODES.numberNode(7);
+                    default -> NODES.textNode(rnd.nextBoolean() ? "" : "BARON_NASHOR");
+                });
+            default -> {
+                ArrayNode ids = NODES.arrayNode();
+                for (int i = rnd.nextInt(4); i > 0; i--) ids.add(number(rnd, 5));
+                MatchDigestTest.put(ev, "assistingParticipantIds", rnd.nextInt(6) == 0 ? NODES.textNode("1") : ids);
+            }
+        }
+    }
+
+    /** 빠진 값(Java null), JSON null, 정수, 문자열 정수, 실수, 불리언 */
+    private static JsonNode number(Random rnd, int bound) {
+        int v = rnd.nextInt(bound);
+        return switch (rnd.nextInt(7)) {
+            case 0  -> null;
+            case 1  -> NODES.nullNode();
+            case 2  -> NODES.textNode(" " + v);
+            case 3  -> NODES.numberNode(v + 0.5);
+            case 4  -> NODES.booleanNode(rnd.nextBoolean());
+            default -> NODES.numberNode(v);
+        };
+    }
+
+    /** 필드 순서만 뒤집은 같은 이벤트 (type 이 뒤에 와도 끝까지 읽고 판단하는지) */
+    private static ObjectNode reversed(ObjectNode ev) {
+        List<Map.Entry<String, JsonNode>> fields = new ArrayList<>();
+        ev.fields().forEachRemaining(fields::add);
+        Collections.reverse(fields);
+        ObjectNode out = NODES.objectNode();
+        for (Map.Entry<String, JsonNode> f : fields) out.set(f.getKey(), f.getValue());
+        return out;
+    }
+}